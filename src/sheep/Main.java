@@ -3,23 +3,36 @@ package sheep;
 import sheep.expression.CoreFactory;
 import sheep.expression.ExpressionFactory;
 import sheep.features.Feature;
+import sheep.features.files.Autosave;
 import sheep.features.files.FileSaving;
+import sheep.features.files.BinaryFiles;
 import sheep.features.files.FileLoading;
+import sheep.features.files.MappedFileLoading;
+import sheep.features.history.UndoRedo;
 import sheep.fun.FunException;
 import sheep.games.life.Life;
 import sheep.games.random.RandomFreeCell;
 import sheep.games.random.RandomTetrosTile;
 import sheep.games.snake.Snake;
 import sheep.games.tetros.Tetros;
+import sheep.parsing.CachingParser;
 import sheep.parsing.Parser;
-import sheep.parsing.SimpleParser;
+import sheep.parsing.PrecedenceParser;
+import sheep.sheets.EditJournal;
 import sheep.sheets.GameSheet;
 import sheep.sheets.Sheet;
 import sheep.ui.UI;
 import sheep.ui.graphical.GUI;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Execute the SheeP spreadsheet program.
@@ -30,23 +43,50 @@ public class Main {
 
     /**
      * Start the spreadsheet program.
-     * @param args Parameters to the program, currently not supported.
+     * @param args Parameters to the program, {@code --journal} recovers the sheet from
+     *             sheet.snapshot and sheet.journal, then records every edit in them,
+     *             otherwise the sheet is autosaved and {@code --restore} restores the autosave.
      * @throws FunException If a pre-populator fails to insert an expression.
      */
     public static void main(String[] args) throws FunException {
+        boolean journaling = List.of(args).contains("--journal");
+        boolean restoring = List.of(args).contains("--restore");
+        if (journaling && restoring) {
+            System.err.println("Choose one of --journal and --restore.");
+            return;
+        }
         ExpressionFactory factory = new CoreFactory();
-        Parser parser = new SimpleParser(factory);
+        Parser parser = new CachingParser(new PrecedenceParser(factory), 4096);
 
         Sheet sheet = new GameSheet(parser, new HashMap<>(),
                 factory.createEmpty(), 20, 5);
 
-        Feature[] features = new Feature[]{
+        List<Feature> features = new ArrayList<>(List.of(
                   new FileLoading(sheet),
                   new FileSaving(sheet),
+                  new MappedFileLoading(sheet, parser, factory),
+                  new BinaryFiles(sheet, parser),
+                  new UndoRedo(sheet),
                   new Life(sheet),
                 new Snake(sheet, new RandomFreeCell(sheet, new Random())),
                 new Tetros(sheet, new RandomTetrosTile(new Random()))
-        };
+        ));
+
+        // the sheet has a single recovery path, either the edit journal or the autosave
+        if (journaling) {
+            journal(sheet);
+        } else {
+            Autosave autosave = new Autosave(sheet, Path.of("sheet.autosave"), 5000,
+                    Executors.newSingleThreadScheduledExecutor(daemon("sheet-autosave")));
+            if (restoring) {
+                try {
+                    autosave.restore();
+                } catch (IOException e) {
+                    System.err.println("Unable to restore the autosave: " + e.getMessage());
+                }
+            }
+            features.add(autosave);
+        }
 
         UI ui = new GUI(sheet, sheet);
         for (Feature feature : features) {
@@ -55,4 +95,43 @@ public class Main {
 
         ui.render();
     }
+
+    /**
+     * Recover the sheet from its edit journal, then record every later edit.
+     * Pending edits are committed once a second on a background thread,
+     * and when the program exits.
+     */
+    private static void journal(Sheet sheet) {
+        EditJournal journal;
+        try {
+            journal = new EditJournal(Path.of("sheet.snapshot"), Path.of("sheet.journal"), 64);
+            journal.recover(sheet);
+        } catch (IOException e) {
+            System.err.println("Unable to open the edit journal: " + e.getMessage());
+            return;
+        }
+        Executors.newSingleThreadScheduledExecutor(daemon("sheet-journal"))
+                .scheduleWithFixedDelay(() -> {
+                    try {
+                        journal.commit();
+                    } catch (IOException e) {
+                        System.err.println("Unable to write the edit journal: " + e.getMessage());
+                    }
+                }, 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Unable to write the edit journal: " + e.getMessage());
+            }
+        }));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 }
@@ -14,4 +14,26 @@ public interface SheetUpdate {
      * @return An {@link UpdateResponse} indicating success or failure with a message.
      */
     UpdateResponse update(int row, int column, String input);
+
+    /**
+     * To be called whenever one wishes to replace the values of many cells at once.
+     * <p>
+     * Implementations should apply the batch atomically,
+     * either every cell is updated or none are,
+     * and recalculate the cells affected by the batch once.
+     * By default, each update is applied in turn with {@link #update(int, int, String)}
+     * until the first failure.
+     *
+     * @param batch The updates to apply.
+     * @return An {@link UpdateResponse} indicating success or failure with a message.
+     */
+    default UpdateResponse updateAll(UpdateBatch batch) {
+        for (UpdateBatch.Entry entry : batch.entries()) {
+            UpdateResponse response = update(entry.getRow(), entry.getColumn(), entry.getInput());
+            if (!response.isSuccess()) {
+                return response;
+            }
+        }
+        return UpdateResponse.success();
+    }
 }
@@ -0,0 +1,111 @@
+package sheep.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A collection of cell updates to be applied together.
+ * <p>
+ * Each cell is updated at most once per batch,
+ * adding a later update for the same cell replaces the earlier input.
+ * Updates are kept in the order their cells were first added.
+ *
+ * <pre>
+ * {@code
+ * UpdateBatch batch = new UpdateBatch()
+ *         .add(0, 0, "1")
+ *         .add(0, 1, "A0 + 1");
+ * sheet.updateAll(batch);
+ * }</pre>
+ */
+public class UpdateBatch {
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * A single update within a batch.
+     */
+    public static class Entry {
+        private final int row;
+        private final int column;
+        private final String input;
+
+        private Entry(int row, int column, String input) {
+            this.row = row;
+            this.column = column;
+            this.input = input;
+        }
+
+        /**
+         * The row index to update.
+         * @return The row index to update.
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * The column index to update.
+         * @return The column index to update.
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * The value as a string to replace within the sheet.
+         * @return The value as a string to replace within the sheet.
+         */
+        public String getInput() {
+            return input;
+        }
+    }
+
+    /**
+     * Construct a new empty batch.
+     */
+    public UpdateBatch() {
+
+    }
+
+    /**
+     * Add an update of a cell to the batch.
+     *
+     * @param row The row index to update.
+     * @param column The column index to update.
+     * @param input The value as a string to replace within the sheet.
+     * @requires input != null
+     * @return This batch, so that updates may be chained.
+     */
+    public UpdateBatch add(int row, int column, String input) {
+        long key = ((long) row << 32) | (column & 0xFFFFFFFFL);
+        entries.put(key, new Entry(row, column, input));
+        return this;
+    }
+
+    /**
+     * The updates within the batch, in the order their cells were first added.
+     * @return A read-only list of the updates within the batch.
+     */
+    public List<Entry> entries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * The number of cells updated by the batch.
+     * @return The number of cells updated by the batch.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Whether the batch contains no updates.
+     * @return true if the batch contains no updates.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+}
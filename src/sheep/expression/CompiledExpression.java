@@ -0,0 +1,37 @@
+package sheep.expression;
+
+import java.util.Map;
+
+/**
+ * An expression prepared for repeated evaluation.
+ * <p>
+ * Compiled expressions produce the same results as {@link Expression#value(Map)},
+ * but resolve cell references by location through a {@link Scope}
+ * and may compute numeric results without allocating intermediate expressions.
+ * <p>
+ * The compiled form of an expression is obtained with {@link Expression#compiled()}.
+ */
+public abstract class CompiledExpression {
+    /**
+     * The result of evaluating the expression.
+     *
+     * @param scope The environment to evaluate within.
+     * @return The result of evaluation, as per {@link Expression#value(Map)}.
+     * @throws TypeError If a type error occurs in the process of evaluation.
+     */
+    public abstract Expression value(Scope scope) throws TypeError;
+
+    /**
+     * The numeric result of evaluating the expression.
+     * <p>
+     * Equivalent to calling {@link Expression#value()} on the result of {@link #value(Scope)},
+     * implementations override this to avoid constructing the intermediate expression.
+     *
+     * @param scope The environment to evaluate within.
+     * @return The numeric result of evaluation.
+     * @throws TypeError If the expression does not evaluate to a numeric value.
+     */
+    public long numeric(Scope scope) throws TypeError {
+        return value(scope).value();
+    }
+}
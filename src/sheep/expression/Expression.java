@@ -1,6 +1,10 @@
 package sheep.expression;
 
+import sheep.sheets.CellLocation;
+
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -11,6 +15,11 @@ import java.util.Set;
  * @stage1
  */
 public abstract class Expression {
+    /** The compiled form of this expression, created on first use. */
+    private CompiledExpression compiled;
+    /** The cells among the dependencies of this expression, found on first use. */
+    private Set<CellLocation> cellDependencies;
+
     /**
      * Construct an instance of an expression, used by subclasses constructors.
      * @hint By default Java will create an empty constructor for all classes,
@@ -34,11 +43,33 @@ public abstract class Expression {
      * expr.dependencies() // {"A1", "A2", "B2"}
      * }</pre>
      *
-     * @return A set containing all the transitive references depended upon by the expression.
+     * @return A set containing all the transitive references depended upon by the expression,
+     *         which callers must not modify.
      * @hint Transitivity can be ignored until stage 2.
      */
     public abstract Set<String> dependencies();
 
+    /**
+     * The dependencies of the expression which refer to cells,
+     * as per {@link CellLocation#maybeReference(String)}.
+     * <p>
+     * Expressions cannot be altered, so the dependencies are parsed once
+     * and the same set is returned for every subsequent call.
+     *
+     * @return An unmodifiable set of the cell locations depended upon by the expression.
+     */
+    public final Set<CellLocation> cellDependencies() {
+        if (cellDependencies == null) {
+            Set<CellLocation> locations = new HashSet<>();
+            for (String dependency : dependencies()) {
+                Optional<CellLocation> location = CellLocation.maybeReference(dependency);
+                location.ifPresent(locations::add);
+            }
+            cellDependencies = Set.copyOf(locations);
+        }
+        return cellDependencies;
+    }
+
     /**
      * Evaluate the expression to a numeric value.
      *
@@ -61,6 +92,49 @@ public abstract class Expression {
      */
     public abstract Expression value(Map<String, Expression> state) throws TypeError;
 
+    /**
+     * The compiled form of this expression, used by sheets to evaluate formulas repeatedly.
+     * <p>
+     * Expressions cannot be altered, so the compiled form is created once
+     * and reused for every subsequent call.
+     *
+     * @return The compiled form of this expression.
+     */
+    public final CompiledExpression compiled() {
+        if (compiled == null) {
+            compiled = compile();
+        }
+        return compiled;
+    }
+
+    /**
+     * Create the compiled form of this expression.
+     * <p>
+     * By default, the compiled form evaluates the expression with {@link #value(Map)},
+     * subclasses may override this to provide a more efficient evaluation.
+     *
+     * @return A compiled expression which evaluates to the same result as this expression.
+     */
+    protected CompiledExpression compile() {
+        return new Interpreted(this);
+    }
+
+    /**
+     * Compiled form of an expression which evaluates the expression itself.
+     */
+    private static class Interpreted extends CompiledExpression {
+        private final Expression expression;
+
+        private Interpreted(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        public Expression value(Scope scope) throws TypeError {
+            return expression.value(scope.state());
+        }
+    }
+
     /**
      * True if the expression is a reference.
      * The abstract class, expression, should return false by default.
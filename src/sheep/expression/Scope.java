@@ -0,0 +1,30 @@
+package sheep.expression;
+
+import sheep.sheets.CellLocation;
+
+import java.util.Map;
+
+/**
+ * The environment in which a {@link CompiledExpression} is evaluated.
+ * <p>
+ * A scope provides direct access to the values of cells by location,
+ * so that compiled references do not need to look up identifiers by name,
+ * along with a mapping of every identifier for expressions that are not compiled.
+ */
+public interface Scope {
+    /**
+     * The value currently held by the cell at the given location.
+     *
+     * @param location A cell location.
+     * @return The value of the cell, or null if the location is not a cell in this scope.
+     */
+    Expression valueAt(CellLocation location);
+
+    /**
+     * A mapping of references to the expression they hold,
+     * as would be passed to {@link Expression#value(Map)}.
+     *
+     * @return A mapping of references to the expression they hold.
+     */
+    Map<String, Expression> state();
+}
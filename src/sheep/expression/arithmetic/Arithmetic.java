@@ -1,5 +1,7 @@
 package sheep.expression.arithmetic;
 
+import sheep.expression.CompiledExpression;
+import sheep.expression.Scope;
 import sheep.expression.basic.Constant;
 import sheep.expression.Expression;
 import sheep.expression.TypeError;
@@ -19,6 +21,8 @@ import java.util.StringJoiner;
 public abstract class Arithmetic extends Expression {
     private final String operator;
     private final Expression[] arguments;
+    /** The union of the dependencies of the arguments. */
+    private final Set<String> dependencies;
 
     /**
      * Construct a new arithmetic expression.
@@ -30,6 +34,11 @@ public abstract class Arithmetic extends Expression {
     protected Arithmetic(String operator, Expression[] arguments) {
         this.operator = operator;
         this.arguments = arguments;
+        Set<String> dependencies = new HashSet<>();
+        for (Expression expression : arguments) {
+            dependencies.addAll(expression.dependencies());
+        }
+        this.dependencies = Set.copyOf(dependencies);
     }
 
     /**
@@ -112,10 +121,6 @@ public abstract class Arithmetic extends Expression {
      */
     @Override
     public Set<String> dependencies() {
-        Set<String> dependencies = new HashSet<>();
-        for (Expression expression : arguments) {
-            dependencies.addAll(expression.dependencies());
-        }
         return dependencies;
     }
 
@@ -161,6 +166,119 @@ public abstract class Arithmetic extends Expression {
      */
     protected abstract long perform(long[] arguments);
 
+    /**
+     * How an arithmetic operation may be performed one pair of numbers at a time.
+     */
+    protected enum Pairwise {
+        /** The operation must be performed on all arguments at once. */
+        NONE,
+        /** The result accumulates from left to right, e.g. (a + b) + c. */
+        ACCUMULATE,
+        /** Each adjacent pair of arguments is compared, e.g. a &lt; b and b &lt; c. */
+        COMPARE
+    }
+
+    /**
+     * How this operation may be performed one pair of numbers at a time
+     * with {@link #perform(long, long)}.
+     * <p>
+     * Operations which can be performed pairwise are evaluated by compiled expressions
+     * without allocating an array of arguments.
+     *
+     * @return How this operation may be performed pairwise,
+     *         by default {@link Pairwise#NONE}.
+     */
+    protected Pairwise pairwise() {
+        return Pairwise.NONE;
+    }
+
+    /**
+     * Perform one step of the arithmetic operation on a pair of numbers.
+     * <p>
+     * For {@link Pairwise#ACCUMULATE} operations, left is the result of the operation
+     * so far and right is the next argument.
+     * For {@link Pairwise#COMPARE} operations, left and right are adjacent arguments
+     * and the result is 1 if the pair satisfies the comparison, otherwise 0.
+     * <p>
+     * By default, this performs the operation on an array of the two numbers.
+     *
+     * @param left The result so far, or the previous argument for comparisons.
+     * @param right The next argument.
+     * @return The result of performing the step.
+     */
+    protected long perform(long left, long right) {
+        return perform(new long[]{left, right});
+    }
+
+    /**
+     * Compiled form of the arithmetic expression.
+     * <p>
+     * Sub-expressions are evaluated directly to numeric values, so nested arithmetic
+     * does not construct intermediate {@link Constant} expressions.
+     * Operations which can be performed pairwise (see {@link #pairwise()})
+     * are also evaluated without an array of arguments.
+     *
+     * @return A compiled expression for the arithmetic expression.
+     */
+    @Override
+    protected CompiledExpression compile() {
+        CompiledExpression[] compiled = new CompiledExpression[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            compiled[i] = arguments[i].compiled();
+        }
+        return new CompiledArithmetic(this, compiled);
+    }
+
+    /**
+     * Compiled form of an arithmetic expression.
+     */
+    private static class CompiledArithmetic extends CompiledExpression {
+        private final Arithmetic operation;
+        private final CompiledExpression[] arguments;
+
+        private CompiledArithmetic(Arithmetic operation, CompiledExpression[] arguments) {
+            this.operation = operation;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public Expression value(Scope scope) throws TypeError {
+            return new Constant(numeric(scope));
+        }
+
+        @Override
+        public long numeric(Scope scope) throws TypeError {
+            Pairwise pairwise = operation.pairwise();
+            if (pairwise == Pairwise.NONE) {
+                long[] values = new long[arguments.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    values[i] = arguments[i].numeric(scope);
+                }
+                return operation.perform(values);
+            }
+
+            long first = arguments[0].numeric(scope);
+            if (pairwise == Pairwise.COMPARE) {
+                // every argument is evaluated so that type errors are always reported
+                long result = 1;
+                long previous = first;
+                for (int i = 1; i < arguments.length; i++) {
+                    long next = arguments[i].numeric(scope);
+                    if (operation.perform(previous, next) == 0) {
+                        result = 0;
+                    }
+                    previous = next;
+                }
+                return result;
+            }
+            long result = first;
+            for (int i = 1; i < arguments.length; i++) {
+                result = operation.perform(result, arguments[i].numeric(scope));
+            }
+            return result;
+        }
+    }
+
     /**
      * The string representation of an expression when rendered within a cell.
      * For arithmetic, this is the sequence of sub-expressions joined
@@ -38,4 +38,26 @@ class Divide extends Arithmetic {
         }
         return result;
     }
+
+    /**
+     * Perform one step of the divide operation on a pair of numbers.
+     *
+     * @param left The result so far.
+     * @param right The next argument.
+     * @return The result of dividing left by right.
+     */
+    @Override
+    protected long perform(long left, long right) {
+        return left / right;
+    }
+
+    /**
+     * Divide accumulates its result from left to right.
+     *
+     * @return {@link Pairwise#ACCUMULATE}
+     */
+    @Override
+    protected Pairwise pairwise() {
+        return Pairwise.ACCUMULATE;
+    }
 }
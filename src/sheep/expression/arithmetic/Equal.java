@@ -42,4 +42,26 @@ class Equal extends Arithmetic {
         }
         return 1;
     }
+
+    /**
+     * Perform one step of the equal operation on a pair of numbers.
+     *
+     * @param left The previous argument.
+     * @param right The next argument.
+     * @return 1 if left is equal to right, otherwise 0.
+     */
+    @Override
+    protected long perform(long left, long right) {
+        return left == right ? 1 : 0;
+    }
+
+    /**
+     * Equal compares each adjacent pair of arguments.
+     *
+     * @return {@link Pairwise#COMPARE}
+     */
+    @Override
+    protected Pairwise pairwise() {
+        return Pairwise.COMPARE;
+    }
 }
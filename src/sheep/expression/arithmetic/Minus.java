@@ -38,4 +38,26 @@ class Minus extends Arithmetic {
         }
         return result;
     }
+
+    /**
+     * Perform one step of the minus operation on a pair of numbers.
+     *
+     * @param left The result so far.
+     * @param right The next argument.
+     * @return The result of subtracting right from left.
+     */
+    @Override
+    protected long perform(long left, long right) {
+        return left - right;
+    }
+
+    /**
+     * Minus accumulates its result from left to right.
+     *
+     * @return {@link Pairwise#ACCUMULATE}
+     */
+    @Override
+    protected Pairwise pairwise() {
+        return Pairwise.ACCUMULATE;
+    }
 }
@@ -38,4 +38,26 @@ class Times extends Arithmetic {
         }
         return result;
     }
+
+    /**
+     * Perform one step of the times operation on a pair of numbers.
+     *
+     * @param left The result so far.
+     * @param right The next argument.
+     * @return The product of left and right.
+     */
+    @Override
+    protected long perform(long left, long right) {
+        return left * right;
+    }
+
+    /**
+     * Times accumulates its result from left to right.
+     *
+     * @return {@link Pairwise#ACCUMULATE}
+     */
+    @Override
+    protected Pairwise pairwise() {
+        return Pairwise.ACCUMULATE;
+    }
 }
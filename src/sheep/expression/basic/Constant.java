@@ -1,6 +1,8 @@
 package sheep.expression.basic;
 
+import sheep.expression.CompiledExpression;
 import sheep.expression.Expression;
+import sheep.expression.Scope;
 
 import java.util.*;
 
@@ -90,7 +92,7 @@ public class Constant extends Expression {
      */
     @Override
     public Set<String> dependencies() {
-        return new HashSet<>();
+        return Set.of();
     }
 
     /**
@@ -121,6 +123,27 @@ public class Constant extends Expression {
         return number;
     }
 
+    /**
+     * Compiled form of the constant, which always evaluates to the constant itself.
+     *
+     * @return A compiled expression for the constant.
+     */
+    @Override
+    protected CompiledExpression compile() {
+        Constant constant = this;
+        return new CompiledExpression() {
+            @Override
+            public Expression value(Scope scope) {
+                return constant;
+            }
+
+            @Override
+            public long numeric(Scope scope) {
+                return number;
+            }
+        };
+    }
+
     /**
      * The string representation of an expression when rendered within a cell.
      * For constants, this is the number as a string.
@@ -1,6 +1,8 @@
 package sheep.expression.basic;
 
+import sheep.expression.CompiledExpression;
 import sheep.expression.Expression;
+import sheep.expression.Scope;
 import sheep.expression.TypeError;
 
 import java.util.*;
@@ -18,7 +20,7 @@ public class Nothing extends Expression {
      */
     @Override
     public Set<String> dependencies() {
-        return new HashSet<>();
+        return Set.of();
     }
 
     /**
@@ -34,6 +36,22 @@ public class Nothing extends Expression {
         return this;
     }
 
+    /**
+     * Compiled form of the empty expression, which always evaluates to itself.
+     *
+     * @return A compiled expression for the empty expression.
+     */
+    @Override
+    protected CompiledExpression compile() {
+        Nothing nothing = this;
+        return new CompiledExpression() {
+            @Override
+            public Expression value(Scope scope) {
+                return nothing;
+            }
+        };
+    }
+
     /**
      * Evaluate the expression to a numeric value.
      * For empty expressions, a type error will always be thrown.
@@ -1,6 +1,8 @@
 package sheep.expression.basic;
 
+import sheep.expression.CompiledExpression;
 import sheep.expression.Expression;
+import sheep.expression.Scope;
 import sheep.expression.TypeError;
 import sheep.sheets.CellLocation;
 
@@ -13,6 +15,7 @@ import java.util.*;
  */
 public class Reference extends Expression {
     private final String identifier;
+    private final Set<String> dependencies;
 
     /**
      * Construct a new reference to an identifier.
@@ -22,6 +25,7 @@ public class Reference extends Expression {
      */
     public Reference(String identifier) {
         this.identifier = identifier;
+        this.dependencies = Set.of(identifier);
     }
 
     /**
@@ -89,9 +93,7 @@ public class Reference extends Expression {
      */
     @Override
     public Set<String> dependencies() {
-        List<String> deps = new ArrayList<>();
-        deps.add(identifier);
-        return new HashSet<>(deps);
+        return dependencies;
     }
 
     /**
@@ -113,6 +115,49 @@ public class Reference extends Expression {
         return this;
     }
 
+    /**
+     * Compiled form of the reference.
+     * <p>
+     * If the identifier is a cell reference, it is parsed once when compiled
+     * and the cell value is retrieved from the scope by location.
+     * Otherwise, or if the location is not a cell of the scope,
+     * the identifier is looked up in the state as per {@link #value(Map)}.
+     *
+     * @return A compiled expression for the reference.
+     */
+    @Override
+    protected CompiledExpression compile() {
+        return new CompiledReference(this, CellLocation.maybeReference(identifier).orElse(null));
+    }
+
+    /**
+     * Compiled form of a reference with its cell location resolved ahead of time.
+     */
+    private static class CompiledReference extends CompiledExpression {
+        private final Reference reference;
+        private final CellLocation location;
+
+        private CompiledReference(Reference reference, CellLocation location) {
+            this.reference = reference;
+            this.location = location;
+        }
+
+        @Override
+        public Expression value(Scope scope) throws TypeError {
+            Expression value = null;
+            if (location != null) {
+                value = scope.valueAt(location);
+            }
+            if (value == null) {
+                value = scope.state().get(reference.identifier);
+            }
+            if (value == null) {
+                return reference;
+            }
+            return value.value(scope.state());
+        }
+    }
+
     /**
      * Evaluate the expression to a numeric value.
      * For references, a type error will always be thrown.
@@ -0,0 +1,379 @@
+package sheep.features.files;
+
+import sheep.core.UpdateBatch;
+import sheep.core.UpdateResponse;
+import sheep.features.Feature;
+import sheep.sheets.CellLocation;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetSnapshot;
+import sheep.ui.OnChange;
+import sheep.ui.Prompt;
+import sheep.ui.Tick;
+import sheep.ui.UI;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feature which periodically saves the formulas of a sheet.
+ * <p>
+ * Edits and tick-driven changes are coalesced, so the sheet is written at most
+ * once per interval however often it changes,
+ * and a change made within the interval is saved once the interval has passed.
+ * Rather than rewriting the whole sheet, each save appends the rows that changed
+ * since the previous save to a change journal next to the autosave file.
+ * Once the journal holds more rows than the sheet, it is compacted by rewriting
+ * the autosave file in full and starting a new journal.
+ * <p>
+ * The autosave file holds a generation number, the dimensions of the sheet,
+ * and each row of the sheet as per {@link Sheet#encode()}.
+ * The journal holds the generation of the autosave file it applies to,
+ * followed by one line per changed row: the row index, a colon, and the encoded row.
+ * A journal whose generation does not match the autosave file is stale and ignored,
+ * so a crash while compacting never loses or regresses a row.
+ * Generations continue from the autosave file left by an earlier run.
+ * <p>
+ * A save which cannot be written is reported on standard error,
+ * and the next save rewrites the autosave file in full.
+ */
+public class Autosave implements Feature, OnChange, Tick {
+    private final Sheet sheet;
+    private final Path file;
+    private final Path journal;
+    private final long interval;
+    private final ScheduledExecutorService executor;
+
+    // guarded by this autosave, as saves are written on the executor
+    /** The snapshot written by the previous successful save, or null to rewrite the file. */
+    private SheetSnapshot saved = null;
+    private long lastSave = Long.MIN_VALUE;
+    /** The generation of the autosave file, or -1 if it has not been read. */
+    private long generation = -1;
+    private int journalRows = 0;
+    /** Whether a save is being written. */
+    private boolean writing = false;
+    /** Whether a trailing save is scheduled. */
+    private boolean trailing = false;
+
+    /**
+     * Construct a new autosave feature for the sheet.
+     *
+     * @param sheet The sheet to save.
+     * @param file The file to save the sheet to, the journal is saved alongside it.
+     * @param interval The minimum number of milliseconds between saves.
+     * @param executor The executor on which files are written and trailing saves are scheduled,
+     *                 which must run tasks one at a time.
+     */
+    public Autosave(Sheet sheet, Path file, long interval, ScheduledExecutorService executor) {
+        this.sheet = sheet;
+        this.file = file;
+        this.journal = file.resolveSibling(file.getFileName() + ".journal");
+        this.interval = interval;
+        this.executor = executor;
+    }
+
+    @Override
+    public void register(UI ui) {
+        ui.onChange(this);
+        ui.onTick(this);
+    }
+
+    @Override
+    public void change(Prompt prompt) {
+        save(System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean onTick(Prompt prompt) {
+        save(System.currentTimeMillis());
+        return false; // saving does not change the spreadsheet
+    }
+
+    /**
+     * Save the rows of the sheet which changed since the previous save,
+     * unless the previous save was less than the interval ago or is still being written,
+     * in which case a trailing save is scheduled.
+     *
+     * @param now The current time in milliseconds.
+     * @return true if a save was scheduled.
+     */
+    synchronized boolean save(long now) {
+        if (writing || (lastSave != Long.MIN_VALUE && now - lastSave < interval)) {
+            scheduleTrailing(writing ? interval : lastSave + interval - now);
+            return false;
+        }
+        lastSave = now;
+
+        SheetSnapshot snapshot = sheet.snapshot();
+        List<Integer> changed = null;
+        if (saved != null
+                && saved.getRows() == snapshot.getRows()
+                && saved.getColumns() == snapshot.getColumns()) {
+            changed = changedRows(saved, snapshot);
+            if (changed.isEmpty()) {
+                return false;
+            }
+        }
+        writing = true;
+        if (changed == null || journalRows + changed.size() > snapshot.getRows()) {
+            executor.execute(() -> write(() -> compact(snapshot)));
+        } else {
+            List<Integer> rows = changed;
+            executor.execute(() -> write(() -> append(snapshot, rows)));
+        }
+        return true;
+    }
+
+    /**
+     * Save once the delay has passed, unless a trailing save is already scheduled.
+     */
+    private void scheduleTrailing(long delay) {
+        if (trailing) {
+            return;
+        }
+        trailing = true;
+        executor.schedule(() -> {
+            synchronized (this) {
+                trailing = false;
+            }
+            save(System.currentTimeMillis());
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The rows of the snapshot containing a formula that is not in the previous snapshot.
+     * Formulas are compared by identity, as unchanged cells share their expressions.
+     */
+    private static List<Integer> changedRows(SheetSnapshot previous, SheetSnapshot snapshot) {
+        List<Integer> changed = new ArrayList<>();
+        for (int row = 0; row < snapshot.getRows(); row++) {
+            for (int column = 0; column < snapshot.getColumns(); column++) {
+                CellLocation location = CellLocation.of(row, column);
+                if (previous.formulaAt(location) != snapshot.formulaAt(location)) {
+                    changed.add(row);
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    /**
+     * Run the write, reporting a failure and rewriting the file in full on the next save,
+     * as the journal may hold part of the failed write.
+     */
+    private void write(Write write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            System.err.println("Unable to autosave the sheet: " + e.getMessage());
+            synchronized (this) {
+                saved = null;
+            }
+        } finally {
+            synchronized (this) {
+                writing = false;
+            }
+        }
+    }
+
+    private static String encodeRow(SheetSnapshot snapshot, int row) {
+        StringJoiner encoding = new StringJoiner("|");
+        for (int column = 0; column < snapshot.getColumns(); column++) {
+            encoding.add(snapshot.formulaAt(CellLocation.of(row, column)).render());
+        }
+        return encoding.toString();
+    }
+
+    /**
+     * The generation of the existing autosave file, or 0 if there is none.
+     */
+    private long savedGeneration() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            return line == null ? 0 : Long.parseLong(line.strip());
+        } catch (NumberFormatException e) {
+            // a corrupt file is replaced by the new generation
+            return 0;
+        }
+    }
+
+    /**
+     * Rewrite the autosave file in full with the next generation, then start a new journal for it.
+     */
+    private void compact(SheetSnapshot snapshot) throws IOException {
+        long generation;
+        synchronized (this) {
+            generation = this.generation;
+        }
+        if (generation < 0) {
+            generation = savedGeneration();
+        }
+        generation++;
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write(generation + "\n");
+            writer.write(snapshot.getRows() + "," + snapshot.getColumns() + "\n");
+            for (int row = 0; row < snapshot.getRows(); row++) {
+                writer.write(encodeRow(snapshot, row));
+                writer.write('\n');
+            }
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.writeString(journal, generation + "\n", StandardCharsets.UTF_8);
+        synchronized (this) {
+            this.generation = generation;
+            this.journalRows = 0;
+            this.saved = snapshot;
+        }
+    }
+
+    /**
+     * Append the changed rows of the snapshot to the journal.
+     */
+    private void append(SheetSnapshot snapshot, List<Integer> rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            for (int row : rows) {
+                writer.write(row + ":" + encodeRow(snapshot, row) + "\n");
+            }
+            writer.flush();
+        }
+        synchronized (this) {
+            journalRows += rows.size();
+            saved = snapshot;
+        }
+    }
+
+    /**
+     * Load the most recent autosave into the sheet,
+     * replaying the rows of the journal over the autosave file.
+     * <p>
+     * The autosave is loaded as a single edit of the sheet.
+     * If some cells cannot be updated, the remaining cells are still loaded.
+     *
+     * @return true if an autosave was loaded, false if there is no autosave file.
+     * @throws IOException If the autosave file cannot be read,
+     *                     or some of its cells cannot be updated.
+     */
+    public boolean restore() throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        long saved;
+        int rows;
+        int columns;
+        String[] encoded;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            saved = Long.parseLong(line(reader).strip());
+            String[] dimensions = line(reader).split(",");
+            if (dimensions.length != 2) {
+                throw corrupt("missing sheet dimensions");
+            }
+            rows = Integer.parseInt(dimensions[0].strip());
+            columns = Integer.parseInt(dimensions[1].strip());
+            if (rows < 0 || columns < 0) {
+                throw corrupt("invalid sheet dimensions");
+            }
+            encoded = new String[rows];
+            for (int row = 0; row < rows; row++) {
+                // a missing row is empty
+                encoded[row] = reader.readLine();
+            }
+
+            if (Files.exists(journal)) {
+                List<String> records = Files.readAllLines(journal, StandardCharsets.UTF_8);
+                if (!records.isEmpty() && Long.parseLong(records.get(0).strip()) == saved) {
+                    for (String record : records.subList(1, records.size())) {
+                        int separator = record.indexOf(':');
+                        if (separator < 0) {
+                            throw corrupt("journal record without a row: " + record);
+                        }
+                        int row = Integer.parseInt(record.substring(0, separator));
+                        if (row < 0 || row >= rows) {
+                            throw corrupt("journal row out of bounds: " + row);
+                        }
+                        encoded[row] = record.substring(separator + 1);
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt autosave file: " + file, e);
+        }
+
+        UpdateBatch batch = new UpdateBatch();
+        for (int row = 0; row < rows; row++) {
+            String[] cells = encoded[row] == null ? new String[0] : encoded[row].split("\\|", -1);
+            for (int column = 0; column < columns; column++) {
+                batch.add(row, column, column < cells.length ? cells[column] : "");
+            }
+        }
+        List<String> failures = new ArrayList<>();
+        sheet.edit(() -> {
+            sheet.clear();
+            sheet.updateDimensions(rows, columns);
+            UpdateResponse response = sheet.updateAll(batch);
+            if (response.isSuccess()) {
+                return;
+            }
+            // fall back to one cell at a time so a single bad cell does not discard the rest
+            for (UpdateBatch.Entry entry : batch.entries()) {
+                response = sheet.update(entry.getRow(), entry.getColumn(), entry.getInput());
+                if (!response.isSuccess()) {
+                    failures.add(response.getMessage());
+                }
+            }
+        });
+        synchronized (this) {
+            generation = saved;
+        }
+        if (!failures.isEmpty()) {
+            throw new IOException("Unable to restore " + failures.size()
+                    + " cells of " + file + ": " + failures.get(0));
+        }
+        return true;
+    }
+
+    /**
+     * The next line of the autosave file, which must exist.
+     */
+    private String line(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            throw corrupt("unexpected end of file");
+        }
+        return line;
+    }
+
+    private IOException corrupt(String reason) {
+        return new IOException("Corrupt autosave file: " + file + ": " + reason);
+    }
+}
@@ -0,0 +1,132 @@
+package sheep.features.files;
+
+import sheep.sheets.SheetSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Saves snapshots of sheets to files in the background.
+ * <p>
+ * A snapshot is written to a temporary file next to the target file,
+ * which is renamed over the target once the snapshot is completely written,
+ * so the target file is never left partially written.
+ * Snapshots are written in the same CSV format as {@link FileSaving},
+ * or by any other {@link Contents}, such as the {@link BinarySheetFormat}.
+ */
+public class BackgroundSave {
+    /** The number of bytes encoded at once when writing to the file. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Receives the progress of a save.
+     */
+    public interface Progress {
+        /**
+         * Called on the saving thread after each row of the snapshot is written.
+         *
+         * @param written The number of rows written so far.
+         * @param total The number of rows in the snapshot.
+         */
+        void rowsWritten(int written, int total);
+    }
+
+    /**
+     * Writes the contents of a saved file.
+     */
+    public interface Contents {
+        /**
+         * Called on the saving thread to write the contents of the file.
+         *
+         * @param channel The channel of the temporary file, forced and closed afterwards.
+         * @throws IOException If the channel cannot be written to.
+         */
+        void write(FileChannel channel) throws IOException;
+    }
+
+    private final Executor executor;
+
+    /**
+     * Construct a new background saver which writes snapshots using the executor.
+     *
+     * @param executor The executor on which snapshots are written.
+     */
+    public BackgroundSave(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Write the snapshot to the target file in the background.
+     *
+     * @param snapshot The snapshot of the sheet to save.
+     * @param target The file to save the snapshot to, replaced if it exists.
+     * @param progress Receives the progress of the save.
+     * @return A future which completes with the target once the file is saved,
+     *         or completes exceptionally if the file cannot be written.
+     */
+    public CompletableFuture<Path> save(SheetSnapshot snapshot, Path target, Progress progress) {
+        return save(target, channel -> writeCSV(snapshot, channel, progress));
+    }
+
+    /**
+     * Write the contents to the target file in the background.
+     *
+     * @param target The file to save the contents to, replaced if it exists.
+     * @param contents Writes the contents of the file.
+     * @return A future which completes with the target once the file is saved,
+     *         or completes exceptionally if the file cannot be written.
+     */
+    public CompletableFuture<Path> save(Path target, Contents contents) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                write(target, contents);
+                return target;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private static void writeCSV(SheetSnapshot snapshot, FileChannel channel, Progress progress)
+            throws IOException {
+        Writer writer = Channels.newWriter(channel,
+                Charset.defaultCharset().newEncoder(), BUFFER_SIZE);
+        writer.write(snapshot.getRows() + "," + snapshot.getColumns() + "\n");
+        for (int row = 0; row < snapshot.getRows(); row++) {
+            snapshot.writeCSVRow(row, writer);
+            progress.rowsWritten(row + 1, snapshot.getRows());
+        }
+        writer.flush();
+    }
+
+    private void write(Path target, Contents contents) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                contents.write(channel);
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
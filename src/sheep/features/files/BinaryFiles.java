@@ -0,0 +1,103 @@
+package sheep.features.files;
+
+import sheep.features.Feature;
+import sheep.parsing.Parser;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetSnapshot;
+import sheep.ui.Prompt;
+import sheep.ui.UI;
+
+import javax.swing.SwingUtilities;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+
+/**
+ * Feature to save and load sheets in the {@link BinarySheetFormat}.
+ * <p>
+ * Binary files preserve the formula and value of every cell,
+ * and load faster than CSV files as each unique formula is only parsed once
+ * and saved values are restored without re-evaluating the sheet.
+ * <p>
+ * Sheets are saved from a snapshot by a {@link BackgroundSave},
+ * so the sheet may be edited while the file is written.
+ */
+public class BinaryFiles implements Feature {
+    private final Sheet sheet;
+    private final BinarySheetFormat format;
+    // Saves are written one at a time, off the event thread
+    private final BackgroundSave saver = new BackgroundSave(Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "sheet-save-binary");
+        thread.setDaemon(true);
+        return thread;
+    }));
+
+    /**
+     * Construct a new binary file feature for the sheet.
+     *
+     * @param sheet The sheet to save and load.
+     * @param parser The parser used to parse the formulas of loaded files.
+     */
+    public BinaryFiles(Sheet sheet, Parser parser) {
+        this.sheet = sheet;
+        this.format = new BinarySheetFormat(parser);
+    }
+
+    @Override
+    public void register(UI ui) {
+        ui.addFeature("save-binary", "Save Binary File", (row, col, prompt) -> save(prompt));
+        ui.addFeature("load-binary", "Load Binary File", (row, col, prompt) -> load(prompt));
+    }
+
+    private Optional<Path> askPath(Prompt prompt) {
+        Optional<String> path = prompt.ask("Please enter file name.");
+        try {
+            return path.map(Path::of);
+        } catch (InvalidPathException e) {
+            prompt.message("Error: Invalid file name.");
+            return Optional.empty();
+        }
+    }
+
+    private void save(Prompt prompt) {
+        Optional<Path> path = askPath(prompt);
+        if (path.isEmpty()) {
+            return;
+        }
+        SheetSnapshot snapshot = sheet.snapshot();
+        saver.save(path.get(), channel ->
+                        format.write(snapshot, new BufferedOutputStream(Channels.newOutputStream(channel))))
+                .whenComplete((saved, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error == null) {
+                        prompt.message("File saved successfully to: " + saved.toAbsolutePath());
+                    } else {
+                        Throwable cause = error.getCause() == null ? error : error.getCause();
+                        prompt.message("Error saving file: " + cause.getMessage());
+                    }
+                }));
+    }
+
+    private void load(Prompt prompt) {
+        Optional<Path> path = askPath(prompt);
+        if (path.isEmpty()) {
+            return;
+        }
+        if (!Files.exists(path.get())) {
+            prompt.message("Error: File not found.");
+            return;
+        }
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path.get()))) {
+            format.read(sheet, input);
+            prompt.message("File loaded successfully.");
+        } catch (IOException e) {
+            prompt.message("Error loading file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package sheep.features.files;
+
+import sheep.expression.Expression;
+import sheep.parsing.ParseException;
+import sheep.parsing.Parser;
+import sheep.sheets.CellLocation;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetSnapshot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary file format for saving the formulas and values of a sheet.
+ * <p>
+ * A file holds the formulas of {@link Sheet#encode()} along with the value of every cell,
+ * stored so that it can be loaded without tokenizing repeated formulas:
+ * <ol>
+ *     <li>The magic number {@code SHEP} and the format version.</li>
+ *     <li>The number of rows and columns of the sheet.</li>
+ *     <li>A table of every unique formula and value rendered within the sheet,
+ *     each stored as its length followed by its UTF-8 bytes.</li>
+ *     <li>For each cell in row-major order, the index of its formula within the table,
+ *     followed by the index of its value, stored as variable length integers.
+ *     Version 1 files only store the index of the formula.</li>
+ * </ol>
+ * Loading a file parses each entry in the table once,
+ * then shares the parsed expression between every cell which uses it.
+ * Saved values are installed directly with {@link Sheet#restoreCells(int, int, Map, Map)},
+ * so loading does not re-evaluate the sheet.
+ */
+public class BinarySheetFormat {
+    /** The first four bytes of every binary sheet file, "SHEP". */
+    static final int MAGIC = 0x53484550;
+    /** The version of the format written by this class. */
+    static final int VERSION = 2;
+    /** The version of the format which does not store values. */
+    private static final int FORMULAS_ONLY = 1;
+
+    private final Parser parser;
+
+    /**
+     * Construct a new binary format which parses loaded formulas with the parser.
+     *
+     * @param parser The parser used to parse the formulas of loaded files.
+     */
+    public BinarySheetFormat(Parser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Write the formulas and values of the sheet to the output in the binary format,
+     * as per {@link #write(SheetSnapshot, OutputStream)} for a snapshot of the sheet.
+     *
+     * @param sheet The sheet to save.
+     * @param output The output to write the sheet to.
+     * @throws IOException If the output cannot be written to.
+     */
+    public void write(Sheet sheet, OutputStream output) throws IOException {
+        write(sheet.snapshot(), output);
+    }
+
+    /**
+     * Write the formulas and values of the snapshot to the output in the binary format.
+     * The output is not buffered or closed by this method.
+     *
+     * @param sheet The snapshot of the sheet to save.
+     * @param output The output to write the sheet to.
+     * @throws IOException If the output cannot be written to.
+     */
+    public void write(SheetSnapshot sheet, OutputStream output) throws IOException {
+        int rows = sheet.getRows();
+        int columns = sheet.getColumns();
+        Map<String, Integer> table = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        int[] indexes = new int[2 * rows * columns];
+        int next = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                CellLocation location = CellLocation.of(row, column);
+                indexes[next++] = entry(table, entries, sheet.formulaAt(location).render());
+                indexes[next++] = entry(table, entries, sheet.valueAt(location).render());
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(rows);
+        data.writeInt(columns);
+        data.writeInt(entries.size());
+        for (String entry : entries) {
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(data, bytes.length);
+            data.write(bytes);
+        }
+        for (int index : indexes) {
+            writeVarInt(data, index);
+        }
+        data.flush();
+    }
+
+    /**
+     * The index of the text within the table, adding it if it is not yet present.
+     */
+    private static int entry(Map<String, Integer> table, List<String> entries, String text) {
+        Integer index = table.get(text);
+        if (index == null) {
+            index = entries.size();
+            table.put(text, index);
+            entries.add(text);
+        }
+        return index;
+    }
+
+    /**
+     * Load a sheet written in the binary format into the sheet,
+     * replacing its contents and dimensions.
+     * <p>
+     * Formulas which cannot be parsed leave their cells empty.
+     * Cells whose saved value cannot be parsed, and all cells of version 1 files,
+     * are re-evaluated once the sheet is loaded.
+     * The input is not buffered or closed by this method.
+     *
+     * @param sheet The sheet to load into.
+     * @param input The input to read the saved sheet from.
+     * @throws IOException If the input cannot be read, or is not a supported binary sheet.
+     */
+    public void read(Sheet sheet, InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a binary sheet file");
+        }
+        int version = data.readUnsignedShort();
+        if (version != VERSION && version != FORMULAS_ONLY) {
+            throw new IOException("Unsupported binary sheet version: " + version);
+        }
+        int rows = data.readInt();
+        int columns = data.readInt();
+        int size = data.readInt();
+        // every cell indexes at most two entries, so a larger table cannot be genuine
+        if (rows < 0 || columns < 0 || size < 0 || size > 2L * rows * columns) {
+            throw new IOException("Corrupt binary sheet file");
+        }
+
+        // the table grows as entries are read, so a corrupt size fails at the end of the input
+        // rather than allocating the whole table up front
+        List<Expression> entries = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Expression entry = null;
+            try {
+                entry = parser.parse(new String(readEntry(data), StandardCharsets.UTF_8));
+            } catch (ParseException e) {
+                // leave cells using this formula empty, or re-evaluate cells with this value
+            }
+            entries.add(entry);
+        }
+        Expression[] table = entries.toArray(new Expression[0]);
+
+        Map<CellLocation, Expression> formulas = new HashMap<>();
+        Map<CellLocation, Expression> values = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                CellLocation location = CellLocation.of(row, column);
+                Expression formula = table[readIndex(data, size)];
+                Expression value = version == FORMULAS_ONLY ? null : table[readIndex(data, size)];
+                if (formula != null) {
+                    formulas.put(location, formula);
+                    if (value != null) {
+                        values.put(location, value);
+                    }
+                }
+            }
+        }
+
+        sheet.edit(() -> {
+            sheet.clear();
+            sheet.restoreCells(rows, columns, formulas, values);
+        });
+    }
+
+    /**
+     * Read the bytes of a table entry, stored as its length followed by its bytes.
+     * The bytes are read in chunks so that a corrupt length fails at the end of the input
+     * rather than allocating an array of that length.
+     */
+    private static byte[] readEntry(DataInputStream data) throws IOException {
+        int length = readVarInt(data);
+        byte[] bytes = data.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Corrupt binary sheet file");
+        }
+        return bytes;
+    }
+
+    private static int readIndex(DataInputStream data, int size) throws IOException {
+        int index = readVarInt(data);
+        if (index < 0 || index >= size) {
+            throw new IOException("Corrupt binary sheet file");
+        }
+        return index;
+    }
+
+    /**
+     * Write a non-negative integer using seven bits per byte,
+     * with the high bit set on every byte except the last.
+     */
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            data.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int next = data.readUnsignedByte();
+            value |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Corrupt variable length integer");
+                }
+                return value;
+            }
+        }
+        throw new EOFException("Corrupt variable length integer");
+    }
+}
@@ -8,15 +8,19 @@ import sheep.ui.graphical.GUI;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class FileLoading implements Feature {
 
+    /** The longest first line which may hold the dimensions of the sheet. */
+    private static final int MAX_HEADER = 64;
+
     private final Sheet sheet;
 
 
@@ -49,19 +53,14 @@ public class FileLoading implements Feature {
                     return;
                 }
 
-                try (BufferedReader reader = new BufferedReader(new FileReader(fileToLoad))) {
+                try (FileChannel channel = FileChannel.open(fileToLoad.toPath(), StandardOpenOption.READ)) {
                     // Read dimensions from the file
-                    String dimensionsLine = reader.readLine();
-                    String[] dimensions = dimensionsLine.split(",");
-                    int loadedRows = Integer.parseInt(dimensions[0]);
-                    int loadedColumns = Integer.parseInt(dimensions[1]);
-
-                    // Load data from CSV
-                    sheet.clear(); // Clear existing data
-                    sheet.loadFromCSV(reader.lines().collect(Collectors.joining("\n")));
+                    String[] dimensions = readDimensions(channel).split(",");
+                    int loadedRows = Integer.parseInt(dimensions[0].strip());
+                    int loadedColumns = Integer.parseInt(dimensions[1].strip());
 
-                    // Update dimensions of the sheet
-                    sheet.updateDimensions(loadedRows, loadedColumns);
+                    // Stream data from the rest of the file, replacing the existing data
+                    sheet.loadFromCSV(channel, Charset.defaultCharset(), loadedRows, loadedColumns);
 
                     prompt.message("File loaded successfully.");
                     // JOptionPane.showMessageDialog(null, );
@@ -78,6 +77,28 @@ public class FileLoading implements Feature {
         }
     }
 
+    /**
+     * Read the first line of the file, which holds the dimensions of the sheet,
+     * leaving the channel positioned at the start of the second line.
+     */
+    private static String readDimensions(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(MAX_HEADER);
+        channel.read(header, 0);
+        header.flip();
+        for (int i = 0; i < header.limit(); i++) {
+            if (header.get(i) == '\n') {
+                channel.position(i + 1);
+                return new String(header.array(), 0, i, Charset.defaultCharset());
+            }
+        }
+        if (header.limit() < MAX_HEADER) {
+            // the file is only the dimensions
+            channel.position(header.limit());
+            return new String(header.array(), 0, header.limit(), Charset.defaultCharset());
+        }
+        throw new IOException("Missing sheet dimensions");
+    }
+
     private static class MessagePrompt implements Prompt {
 
         @Override
@@ -2,19 +2,26 @@ package sheep.features.files;
 
 import sheep.features.Feature;
 import sheep.sheets.Sheet;
+import sheep.sheets.SheetSnapshot;
 import sheep.ui.UI;
 
 import javax.swing.*;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.util.concurrent.Executors;
 import java.awt.HeadlessException; // Import HeadlessException
 
 public class FileSaving implements Feature {
+    /** The number of rows written between updates of the progress monitor. */
+    private static final int PROGRESS_ROWS = 256;
 
     private final Sheet sheet;
     private String errorMessage; // Field to store error message
+    // Saves are written one at a time, off the event thread
+    private final BackgroundSave saver = new BackgroundSave(Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "sheet-save");
+        thread.setDaemon(true);
+        return thread;
+    }));
 
     public FileSaving(Sheet sheet) {
         this.sheet = sheet;
@@ -40,18 +47,27 @@ public class FileSaving implements Feature {
                     fileToSave = new File(filePath + ".csv");
                 }
 
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileToSave))) {
-                    // Write the sheet dimensions to the file
-                    writer.write(sheet.getRows() + "," + sheet.getColumns() + "\n");
-
-                    // Write the spreadsheet data to the file in CSV format
-                    writer.write(sheet.toCSV());
-
-                    JOptionPane.showMessageDialog(null, "File saved successfully to: " + fileToSave.getAbsolutePath());
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    JOptionPane.showMessageDialog(null, "Error saving file: " + e.getMessage());
-                }
+                // snapshot the sheet so that it may be edited while the file is written
+                SheetSnapshot snapshot = sheet.snapshot();
+                File target = fileToSave;
+                ProgressMonitor monitor = new ProgressMonitor(null,
+                        "Saving " + target.getName(), null, 0, snapshot.getRows());
+                saver.save(snapshot, target.toPath(), (written, total) -> {
+                            // only report periodically so large sheets do not flood the event queue
+                            if (written % PROGRESS_ROWS == 0 || written == total) {
+                                SwingUtilities.invokeLater(() -> monitor.setProgress(written));
+                            }
+                        })
+                        .whenComplete((path, error) -> SwingUtilities.invokeLater(() -> {
+                            monitor.close();
+                            if (error == null) {
+                                JOptionPane.showMessageDialog(null, "File saved successfully to: " + target.getAbsolutePath());
+                            } else {
+                                error.printStackTrace();
+                                Throwable cause = error.getCause() == null ? error : error.getCause();
+                                JOptionPane.showMessageDialog(null, "Error saving file: " + cause.getMessage());
+                            }
+                        }));
             }
         } catch (HeadlessException e) {
             // Handle headless environment
@@ -0,0 +1,289 @@
+package sheep.features.files;
+
+import sheep.expression.Expression;
+import sheep.expression.ExpressionFactory;
+import sheep.features.Feature;
+import sheep.parsing.ParseException;
+import sheep.parsing.Parser;
+import sheep.sheets.CellLocation;
+import sheep.sheets.CsvReader;
+import sheep.sheets.Sheet;
+import sheep.ui.Prompt;
+import sheep.ui.UI;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Feature to load large saved sheets by memory-mapping the file.
+ * <p>
+ * Rather than reading the file into a string and splitting it,
+ * the file is mapped into memory one window at a time and its cells are read
+ * from the mapped bytes by a {@link CsvReader}.
+ * Cells containing plain numbers are converted straight from their bytes into constants,
+ * only cells containing formulas are decoded and parsed.
+ * Once loaded, the time taken and the rate at which the file was loaded are reported.
+ * <p>
+ * Files must be in the format written by {@link FileSaving},
+ * using an ASCII compatible charset.
+ */
+public class MappedFileLoading implements Feature {
+    /** The largest number of bytes of a file which are mapped at once. */
+    private static final long WINDOW_SIZE = 1 << 30;
+
+    private final Sheet sheet;
+    private final Parser parser;
+    private final ExpressionFactory factory;
+
+    /**
+     * Construct a new memory-mapped loader for the sheet.
+     *
+     * @param sheet The sheet to load files into.
+     * @param parser The parser used to parse cells containing formulas.
+     * @param factory The factory used to construct cells containing numbers.
+     */
+    public MappedFileLoading(Sheet sheet, Parser parser, ExpressionFactory factory) {
+        this.sheet = sheet;
+        this.parser = parser;
+        this.factory = factory;
+    }
+
+    @Override
+    public void register(UI ui) {
+        ui.addFeature("load-mapped-file", "Load Large File", (row, col, prompt) -> loadFile(prompt));
+    }
+
+    private void loadFile(Prompt prompt) {
+        Optional<String> path = prompt.ask("Please enter file name.");
+        if (path.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long size;
+        try {
+            Path file = Path.of(path.get());
+            if (!Files.exists(file)) {
+                prompt.message("Error: File not found.");
+                return;
+            }
+            size = load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            prompt.message("Error loading file.");
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        prompt.message(String.format("File loaded in %d ms (%.1f MB/s).",
+                elapsed / 1_000_000, size / seconds / (1 << 20)));
+    }
+
+    /**
+     * Load the saved sheet within the file into the sheet.
+     *
+     * @param file The path of a saved sheet.
+     * @return The number of bytes loaded.
+     * @throws IOException If the file cannot be read,
+     *                     or does not start with the dimensions of the sheet.
+     * @throws NumberFormatException If the dimensions of the saved sheet are not numbers.
+     */
+    long load(Path file) throws IOException {
+        return load(file, WINDOW_SIZE);
+    }
+
+    /**
+     * Load the saved sheet within the file into the sheet,
+     * mapping at most the given number of bytes of the file at once.
+     */
+    long load(Path file, long windowSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            new MappedLoad(channel, size, windowSize, Charset.defaultCharset()).load();
+            return size;
+        }
+    }
+
+    /**
+     * The state of loading a single mapped file.
+     * <p>
+     * Rows and cells are read by a {@link CsvReader}, so they are delimited
+     * as per {@link Sheet#loadFromCSV(String)}.
+     * The file is mapped one window at a time, each window ending with the last line
+     * break within it, so no cell spans two windows.
+     */
+    private class MappedLoad implements CsvReader.Handler {
+        private final FileChannel channel;
+        private final long size;
+        private final long windowSize;
+        private final Charset charset;
+        private final Map<CellLocation, Expression> cells = new HashMap<>();
+        private int[] rowLengths = new int[16];
+        private int rows = 0;
+        private int columns = 0;
+
+        private MappedLoad(FileChannel channel, long size, long windowSize, Charset charset) {
+            this.channel = channel;
+            this.size = size;
+            this.windowSize = windowSize;
+            this.charset = charset;
+        }
+
+        private ByteBuffer map(long position) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(windowSize, size - position));
+        }
+
+        private void load() throws IOException {
+            ByteBuffer header = map(0);
+            int end = 0;
+            while (end < header.limit() && header.get(end) != '\n') {
+                end++;
+            }
+            String[] dimensions = charset.decode(header.slice(0, end)).toString().split(",");
+            if (dimensions.length != 2) {
+                throw new IOException("Missing sheet dimensions");
+            }
+            int loadedRows = Integer.parseInt(dimensions[0].strip());
+            int loadedColumns = Integer.parseInt(dimensions[1].strip());
+            if (loadedRows < 0 || loadedColumns < 0) {
+                throw new IOException("Invalid sheet dimensions");
+            }
+
+            CsvReader reader = new CsvReader(this);
+            long position = Math.min(end + 1L, size);
+            while (position < size) {
+                ByteBuffer window = map(position);
+                int length = window.limit();
+                if (position + length < size) {
+                    // end the window after its last line break
+                    while (length > 0 && !isLineBreak(window.get(length - 1))) {
+                        length--;
+                    }
+                    if (length == 0) {
+                        throw new IOException("Row too long to map at byte " + position);
+                    }
+                }
+                reader.read(window.slice(0, length), charset);
+                position += length;
+            }
+            reader.finish();
+
+            // pad every row to the longest row
+            Expression empty = factory.createEmpty();
+            for (int row = 0; row < rows; row++) {
+                for (int column = rowLengths[row]; column < columns; column++) {
+                    cells.put(CellLocation.of(row, column), empty);
+                }
+            }
+
+            sheet.edit(() -> {
+                sheet.clear();
+                sheet.loadCells(rows, columns, cells);
+                sheet.updateDimensions(loadedRows, loadedColumns);
+            });
+        }
+
+        private static boolean isLineBreak(byte character) {
+            return character == '\n' || character == '\r';
+        }
+
+        @Override
+        public void cell(int row, int column, ByteBuffer content, Charset charset) {
+            Expression expression = number(content);
+            put(row, column, expression != null ? expression
+                    : expression(charset.decode(content).toString()));
+        }
+
+        @Override
+        public void cell(int row, int column, String content) {
+            put(row, column, expression(content));
+        }
+
+        private void put(int row, int column, Expression expression) {
+            if (expression != null) {
+                cells.put(CellLocation.of(row, column), expression);
+            }
+        }
+
+        @Override
+        public void endRow(int row, int columns) {
+            if (row == rowLengths.length) {
+                rowLengths = Arrays.copyOf(rowLengths, row * 2);
+            }
+            rowLengths[row] = columns;
+            this.columns = Math.max(this.columns, columns);
+            rows = row + 1;
+        }
+
+        /**
+         * The expression for the content of a cell,
+         * or null if the cell cannot be parsed.
+         */
+        private Expression expression(String content) {
+            if (content.isBlank()) {
+                return factory.createEmpty();
+            }
+            try {
+                return parser.parse(content);
+            } catch (ParseException e) {
+                // leave the cell unchanged
+                return null;
+            }
+        }
+
+        /**
+         * The constant for the bytes of a cell holding an ASCII number within the range
+         * of a long, surrounded by optional spaces, or null if the cell holds anything else.
+         * An empty cell is the empty expression.
+         */
+        private Expression number(ByteBuffer content) {
+            int i = content.position();
+            int end = content.limit();
+            while (i < end && isSpace(content.get(i))) {
+                i++;
+            }
+            while (end > i && isSpace(content.get(end - 1))) {
+                end--;
+            }
+            if (i == end) {
+                return factory.createEmpty();
+            }
+            byte sign = content.get(i);
+            if (sign == '+' || sign == '-') {
+                i++;
+            }
+            if (i == end) {
+                return null;
+            }
+            // accumulate negatively, as the negative range is larger
+            long limit = sign == '-' ? Long.MIN_VALUE : -Long.MAX_VALUE;
+            long result = 0;
+            for (; i < end; i++) {
+                int digit = content.get(i) - '0';
+                if (digit < 0 || digit > 9 || result < limit / 10) {
+                    return null;
+                }
+                result *= 10;
+                if (result < limit + digit) {
+                    return null;
+                }
+                result -= digit;
+            }
+            return factory.createConstant(sign == '-' ? result : -result);
+        }
+
+        private static boolean isSpace(byte character) {
+            return character == ' ' || character == '\t';
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package sheep.features.history;
+
+import sheep.features.Feature;
+import sheep.sheets.Sheet;
+import sheep.ui.Prompt;
+import sheep.ui.UI;
+
+/**
+ * Feature to undo and redo edits of a sheet.
+ * <p>
+ * Edits are only remembered by sheets whose cells keep their earlier versions,
+ * see {@link Sheet#undo()}.
+ */
+public class UndoRedo implements Feature {
+    private final Sheet sheet;
+
+    /**
+     * Construct a new undo and redo feature for the sheet.
+     *
+     * @param sheet The sheet whose edits are undone and redone.
+     */
+    public UndoRedo(Sheet sheet) {
+        this.sheet = sheet;
+    }
+
+    @Override
+    public void register(UI ui) {
+        ui.addFeature("undo", "Undo", (row, col, prompt) -> undo(prompt));
+        ui.addFeature("redo", "Redo", (row, col, prompt) -> redo(prompt));
+    }
+
+    private void undo(Prompt prompt) {
+        if (!sheet.undo()) {
+            prompt.message("Nothing to undo.");
+        }
+    }
+
+    private void redo(Prompt prompt) {
+        if (!sheet.redo()) {
+            prompt.message("Nothing to redo.");
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.UpdateBatch;
+import sheep.core.UpdateResponse;
 
 public class BreakoutFun implements Fun {
     private int columns = 0;
@@ -11,12 +13,15 @@ public class BreakoutFun implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
+        UpdateBatch batch = new UpdateBatch();
         for (int y = 0; y < 3; y++) {
             for (int x = 0; x < columns; x++) {
-                if (!sheet.update(y, x, "1").isSuccess()) {
-                    break;
-                }
+                batch.add(y, x, "1");
             }
         }
+        UpdateResponse response = sheet.updateAll(batch);
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
+        }
     }
 }
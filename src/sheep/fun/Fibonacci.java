@@ -1,6 +1,7 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.UpdateBatch;
 import sheep.core.UpdateResponse;
 
 /**
@@ -15,18 +16,20 @@ public class Fibonacci implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
-        sheet.update(0, 0, "0");
-        sheet.update(1, 0, "1");
-        sheet.update(2, 0, "1");
+        UpdateBatch batch = new UpdateBatch()
+                .add(0, 0, "0")
+                .add(1, 0, "1")
+                .add(2, 0, "1");
 
         for (int i = 3; i < rows; i++) {
             String minus2 = "A" + (i - 2);
             String minus1 = "A" + (i - 1);
 
-            UpdateResponse response = sheet.update(i, 0, minus1 + " + " + minus2);
-            if (!response.isSuccess()) {
-                throw new FunException(response.getMessage());
-            }
+            batch.add(i, 0, minus1 + " + " + minus2);
+        }
+        UpdateResponse response = sheet.updateAll(batch);
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
         }
     }
 }
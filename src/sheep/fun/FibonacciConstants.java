@@ -1,6 +1,7 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.UpdateBatch;
 import sheep.core.UpdateResponse;
 
 /**
@@ -22,11 +23,13 @@ public class FibonacciConstants implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
+        UpdateBatch batch = new UpdateBatch();
         for (int row = 0; row < rows; row++) {
-            UpdateResponse response = sheet.update(row, 0, "" + fib(row));
-            if (!response.isSuccess()) {
-                throw new FunException(response.getMessage());
-            }
+            batch.add(row, 0, "" + fib(row));
+        }
+        UpdateResponse response = sheet.updateAll(batch);
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
         }
     }
 }
@@ -1,6 +1,8 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.UpdateBatch;
+import sheep.core.UpdateResponse;
 
 public class GameOfLife implements Fun {
     private static final int ROW = 6;
@@ -8,17 +10,22 @@ public class GameOfLife implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
-        sheet.update(ROW, COL, "1");
-        sheet.update(ROW, COL + 1, "1");
-        sheet.update(ROW - 1, COL + 2, "1");
-        sheet.update(ROW + 1, COL + 2, "1");
-        sheet.update(ROW, COL + 3, "1");
-        sheet.update(ROW, COL + 4, "1");
-        sheet.update(ROW, COL + 5, "1");
-        sheet.update(ROW, COL + 6, "1");
-        sheet.update(ROW - 1, COL + 7, "1");
-        sheet.update(ROW + 1, COL + 7, "1");
-        sheet.update(ROW, COL + 8, "1");
-        sheet.update(ROW, COL + 9, "1");
+        UpdateBatch batch = new UpdateBatch();
+        batch.add(ROW, COL, "1");
+        batch.add(ROW, COL + 1, "1");
+        batch.add(ROW - 1, COL + 2, "1");
+        batch.add(ROW + 1, COL + 2, "1");
+        batch.add(ROW, COL + 3, "1");
+        batch.add(ROW, COL + 4, "1");
+        batch.add(ROW, COL + 5, "1");
+        batch.add(ROW, COL + 6, "1");
+        batch.add(ROW - 1, COL + 7, "1");
+        batch.add(ROW + 1, COL + 7, "1");
+        batch.add(ROW, COL + 8, "1");
+        batch.add(ROW, COL + 9, "1");
+        UpdateResponse response = sheet.updateAll(batch);
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
+        }
     }
 }
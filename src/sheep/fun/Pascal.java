@@ -1,6 +1,7 @@
 package sheep.fun;
 
 import sheep.core.SheetUpdate;
+import sheep.core.UpdateBatch;
 import sheep.core.UpdateResponse;
 
 public class Pascal implements Fun {
@@ -14,26 +15,27 @@ public class Pascal implements Fun {
 
     @Override
     public void draw(SheetUpdate sheet) throws FunException {
+        UpdateBatch batch = new UpdateBatch();
         for (int y = 0; y < 5; y++) {
             for (int x = 0; x < 6; x++) {
                 int row = y + startRow;
                 int column = x + startColumn;
-                UpdateResponse response;
                 if (x < 1) {
-                    response = sheet.update(row, column, "1");
+                    batch.add(row, column, "1");
                 } else if (x > y) {
-                    response = sheet.update(row, column, "1");
+                    batch.add(row, column, "1");
                 } else {
                     String leftColumn = Character.toString(column - 1 + 65);
                     String rightColumn = Character.toString(column + 65);
-                    response = sheet.update(row, column,
+                    batch.add(row, column,
                             "" + leftColumn + (row - 1) + " + "
                                     + rightColumn + (row - 1));
                 }
-                if (!response.isSuccess()) {
-                    throw new FunException(response.getMessage());
-                }
             }
         }
+        UpdateResponse response = sheet.updateAll(batch);
+        if (!response.isSuccess()) {
+            throw new FunException(response.getMessage());
+        }
     }
 }
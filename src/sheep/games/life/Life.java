@@ -1,5 +1,6 @@
 package sheep.games.life;
 
+import sheep.core.UpdateBatch;
 import sheep.features.Feature;
 import sheep.sheets.Sheet;
 import sheep.ui.*;
@@ -23,13 +24,16 @@ public class Life implements Feature, Tick {
     @Override
     public boolean onTick(Prompt prompt) {
         if (running) {
-            updateSheet();
+            // each generation replaces the last, so generations are not undone
+            sheet.untracked(this::updateSheet);
             return true; // Spreadsheet needs to be re-rendered
         }
         return false; // No changes in the spreadsheet
     }
 
     private void updateSheet() {
+        // compute the next generation from the current one, then apply it at once
+        UpdateBatch generation = new UpdateBatch();
         for (int row = 0; row < sheet.getRows(); row++) {
             for (int col = 0; col < sheet.getColumns(); col++) {
                 int neighbors = countOnNeighbors(row, col);
@@ -37,23 +41,24 @@ public class Life implements Feature, Tick {
                     // Cell is on
                     if (neighbors < 2 || neighbors > 3) {
                         // Cell turns off due to underpopulation or overpopulation
-                        sheet.update(row, col, "");
+                        generation.add(row, col, "");
                     } else {
                         // Cell survives
-                        sheet.update(row, col, "1");
+                        generation.add(row, col, "1");
                     }
                 } else {
                     // Cell is off
                     if (neighbors == 3) {
                         // Cell turns on due to reproduction
-                        sheet.update(row, col, "1");
+                        generation.add(row, col, "1");
                     } else {
                         // Cell remains off
-                        sheet.update(row, col, "");
+                        generation.add(row, col, "");
                     }
                 }
             }
         }
+        sheet.updateAll(generation);
     }
 
 
@@ -29,7 +29,7 @@ public class RandomFreeCell implements RandomCell {
     public CellLocation pick() {
         CellLocation location;
         do {
-            location = new CellLocation(
+            location = CellLocation.of(
                     random.nextInt(sheet.getRows()),
                     random.nextInt(sheet.getColumns()));
         } while (!sheet.valueAt(location.getRow(), location.getColumn()).getContent().equals(""));
@@ -44,7 +44,7 @@ public class RandomFreeCell implements RandomCell {
         do {
             row = random.nextInt(rows);
             column = random.nextInt(columns);
-            location = new CellLocation(row, column);
+            location = CellLocation.of(row, column);
         } while ((row == 0 && column == 0) || !sheet.valueAt(row, column).getContent().equals(""));
         return location;
     }
@@ -1,5 +1,6 @@
 package sheep.games.snake;
 
+import sheep.expression.Expression;
 import sheep.expression.TypeError;
 import sheep.expression.basic.Constant;
 import sheep.expression.basic.Nothing;
@@ -46,8 +47,8 @@ public class Snake implements Feature, Tick {
             return false;
         }
 
-        // Move the snake
-        move();
+        // Move the snake, the moves of the game are not undone
+        sheet.untracked(this::move);
 
         // Check for collision with itself
         if (isSelfCollision()) {
@@ -67,7 +68,7 @@ public class Snake implements Feature, Tick {
     private void move() {
         // Update snake's head position
         CellLocation head = snake.get(0);
-        CellLocation newHead = new CellLocation(head.getRow() + dy, head.getColumn() + dx);
+        CellLocation newHead = CellLocation.of(head.getRow() + dy, head.getColumn() + dx);
 
         // Check if the new head position is the food cell
         if (foodCell != null && foodCell.equals(newHead)) {
@@ -106,12 +107,15 @@ public class Snake implements Feature, Tick {
 
     private void renderSnake() {
         // Clear previous snake cells
+        Map<CellLocation, Expression> body = new HashMap<>();
+        Expression segment = new Constant(1L);
         for (CellLocation cell : snake) {
-            try {
-                sheet.update(cell, new Constant(1L));
-            } catch (TypeError e) {
-                throw new RuntimeException(e);
-            }
+            body.put(cell, segment);
+        }
+        try {
+            sheet.update(body);
+        } catch (TypeError e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -148,11 +152,16 @@ public class Snake implements Feature, Tick {
         @Override
         public void perform(int row, int column, Prompt prompt) {
             started = true;
+            // starting the game is undone as one edit
+            sheet.edit(this::start);
+        }
+
+        private void start() {
             // Clear the sheet when starting a new game
             clearSheet();
             // Initialize snake at top-left corner
             snake.clear();
-            snake.add(new CellLocation(1, 1));
+            snake.add(CellLocation.of(1, 1));
             // Set initial movement direction
             dx = 0;
             dy = 1; // Move downwards
@@ -168,15 +177,18 @@ public class Snake implements Feature, Tick {
 
     private void clearSheet() {
         // Clear the sheet
+        Map<CellLocation, Expression> cleared = new HashMap<>();
+        Expression empty = new Nothing();
         for (int row = 0; row < sheet.getRows(); row++) {
             for (int column = 0; column < sheet.getColumns(); column++) {
-                try {
-                    sheet.update(new CellLocation(row, column), new Nothing());
-                } catch (TypeError e) {
-                    throw new RuntimeException(e);
-                }
+                cleared.put(CellLocation.of(row, column), empty);
             }
         }
+        try {
+            sheet.update(cleared);
+        } catch (TypeError e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public class Move implements Perform {
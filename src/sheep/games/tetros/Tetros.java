@@ -49,7 +49,7 @@ public class Tetros implements Tick, Feature {
         }
         List<CellLocation> newContents = new ArrayList<>();
         for (CellLocation tile : contents) {
-            newContents.add(new CellLocation(tile.getRow(), tile.getColumn() + x));
+            newContents.add(CellLocation.of(tile.getRow(), tile.getColumn() + x));
         }
         if (!inBounds(newContents)) {
             return;
@@ -67,7 +67,7 @@ public class Tetros implements Tick, Feature {
     public boolean dropTile() {
         List<CellLocation> newContents = new ArrayList<>();
         for (CellLocation tile : contents) {
-            newContents.add(new CellLocation(tile.getRow() + 1, tile.getColumn()));
+            newContents.add(CellLocation.of(tile.getRow() + 1, tile.getColumn()));
         }
         unrender();
         for (CellLocation newLoc : newContents) {
@@ -105,7 +105,7 @@ public class Tetros implements Tick, Feature {
         for (CellLocation location : contents) {
             int lx = x + ((y -location.getRow())*direction);
             int ly = y + ((x -location.getColumn())*direction);
-            CellLocation replacement = new CellLocation(ly, lx);
+            CellLocation replacement = CellLocation.of(ly, lx);
             newCells.add(replacement);
         }
         if (!inBounds(newCells)) {
@@ -143,8 +143,8 @@ public class Tetros implements Tick, Feature {
         for (int rowX = row; rowX > 0; rowX--) {
             for (int col = 0; col < sheet.getColumns(); col++) {
                 try {
-                    if (!contents.contains(new CellLocation(rowX - 1, col))) {
-                        sheet.update(new CellLocation(rowX, col), sheet.valueAt(new CellLocation(rowX - 1, col)));
+                    if (!contents.contains(CellLocation.of(rowX - 1, col))) {
+                        sheet.update(CellLocation.of(rowX, col), sheet.valueAt(CellLocation.of(rowX - 1, col)));
                     }
                 } catch (TypeError e) {
                     throw new RuntimeException(e);
@@ -236,52 +236,52 @@ public class Tetros implements Tick, Feature {
         int value = randomTile.pick();
         switch (value) {
             case 1 -> {
-                contents.add(new CellLocation(0, 0));
-                contents.add(new CellLocation(1, 0));
-                contents.add(new CellLocation(2, 0));
-                contents.add(new CellLocation(2, 1));
+                contents.add(CellLocation.of(0, 0));
+                contents.add(CellLocation.of(1, 0));
+                contents.add(CellLocation.of(2, 0));
+                contents.add(CellLocation.of(2, 1));
                 fallingType = 7;
             }
             case 2 -> {
-                contents.add(new CellLocation(0, 1));
-                contents.add(new CellLocation(1, 1));
-                contents.add(new CellLocation(2, 1));
-                contents.add(new CellLocation(2, 0));
+                contents.add(CellLocation.of(0, 1));
+                contents.add(CellLocation.of(1, 1));
+                contents.add(CellLocation.of(2, 1));
+                contents.add(CellLocation.of(2, 0));
                 fallingType = 5;
             }
             case 3 -> {
-                contents.add(new CellLocation(0, 0));
-                contents.add(new CellLocation(0, 1));
-                contents.add(new CellLocation(0, 2));
-                contents.add(new CellLocation(1, 1));
+                contents.add(CellLocation.of(0, 0));
+                contents.add(CellLocation.of(0, 1));
+                contents.add(CellLocation.of(0, 2));
+                contents.add(CellLocation.of(1, 1));
                 fallingType = 8;
             }
             case 4 -> {
-                contents.add(new CellLocation(0, 0));
-                contents.add(new CellLocation(0, 1));
-                contents.add(new CellLocation(1, 0));
-                contents.add(new CellLocation(1, 1));
+                contents.add(CellLocation.of(0, 0));
+                contents.add(CellLocation.of(0, 1));
+                contents.add(CellLocation.of(1, 0));
+                contents.add(CellLocation.of(1, 1));
                 fallingType = 3;
             }
             case 5 -> {
-                contents.add(new CellLocation(0, 0));
-                contents.add(new CellLocation(1, 0));
-                contents.add(new CellLocation(2, 0));
-                contents.add(new CellLocation(3, 0));
+                contents.add(CellLocation.of(0, 0));
+                contents.add(CellLocation.of(1, 0));
+                contents.add(CellLocation.of(2, 0));
+                contents.add(CellLocation.of(3, 0));
                 fallingType = 6;
             }
             case 6 -> {
-                contents.add(new CellLocation(0, 1));
-                contents.add(new CellLocation(0, 2));
-                contents.add(new CellLocation(1, 1));
-                contents.add(new CellLocation(0, 1));
+                contents.add(CellLocation.of(0, 1));
+                contents.add(CellLocation.of(0, 2));
+                contents.add(CellLocation.of(1, 1));
+                contents.add(CellLocation.of(0, 1));
                 fallingType = 2;
             }
             case 0 -> {
-                contents.add(new CellLocation(0, 0));
-                contents.add(new CellLocation(0, 1));
-                contents.add(new CellLocation(1, 1));
-                contents.add(new CellLocation(1, 2));
+                contents.add(CellLocation.of(0, 0));
+                contents.add(CellLocation.of(0, 1));
+                contents.add(CellLocation.of(1, 1));
+                contents.add(CellLocation.of(1, 2));
                 fallingType = 4;
             }
         }
@@ -294,14 +294,25 @@ public class Tetros implements Tick, Feature {
             return false;
         }
 
+        // the moves of the game are not undone
+        sheet.untracked(this::fall);
+        if (!started) {
+            prompt.message("Game Over!");
+        }
+        return true;
+    }
+
+    /**
+     * Drops the current piece by one row, dropping a new piece once it lands,
+     * then clears any filled rows.
+     */
+    private void fall() {
         if (dropTile()) {
             if (drop()) {
-                prompt.message("Game Over!");
                 started = false;
             }
         }
         clear();
-        return true;
     }
 
     /**
@@ -311,7 +322,8 @@ public class Tetros implements Tick, Feature {
         @Override
         public void perform(int row, int column, Prompt prompt) {
             started = true;
-            drop();
+            // the first piece is undone as one edit
+            sheet.edit(Tetros.this::drop);
         }
     }
 
@@ -330,7 +342,7 @@ public class Tetros implements Tick, Feature {
             if (!started) {
                 return;
             }
-            shift(direction);
+            sheet.untracked(() -> shift(direction));
         }
     }
 
@@ -349,7 +361,7 @@ public class Tetros implements Tick, Feature {
             if (!started) {
                 return;
             }
-            flip(direction);
+            sheet.untracked(() -> flip(direction));
         }
     }
 
@@ -0,0 +1,111 @@
+package sheep.parsing;
+
+import sheep.expression.Expression;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parser which remembers the expressions produced for recently parsed inputs.
+ * <p>
+ * Expressions are immutable, so cells with identical formula text,
+ * such as the markers written by games on every tick,
+ * can share the single expression parsed for that text.
+ * Parsing is delegated to another parser whenever an input is not cached.
+ * Once the cache is full, the least recently used input is evicted.
+ * <p>
+ * Inputs which fail to parse are not cached.
+ */
+public class CachingParser implements Parser {
+    private final Parser parser;
+    private final Map<String, Expression> cache;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Construct a new caching parser in front of the given parser.
+     *
+     * @param parser Parser used to parse inputs which are not cached.
+     * @param capacity The maximum number of inputs to remember, must be positive.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public CachingParser(Parser parser, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        this.parser = parser;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Attempt to parse a string expression into an expression,
+     * returning the previously parsed expression if the input is cached.
+     *
+     * @param input A string to attempt to parse.
+     * @return The result of parsing the expression.
+     * @throws ParseException If the string input is not recognisable as an expression.
+     */
+    @Override
+    public Expression parse(String input) throws ParseException {
+        synchronized (cache) {
+            Expression cached = cache.get(input);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        Expression expression = parser.parse(input);
+        synchronized (cache) {
+            cache.put(input, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * The number of parses answered from the cache.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * The number of parses delegated to the underlying parser.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * The number of inputs currently cached.
+     *
+     * @return The size of the cache.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Forget all cached inputs, without resetting the hit and miss counts.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
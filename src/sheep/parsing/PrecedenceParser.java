@@ -0,0 +1,259 @@
+package sheep.parsing;
+
+import sheep.expression.Expression;
+import sheep.expression.ExpressionFactory;
+import sheep.expression.InvalidExpression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parser of basic expressions and arithmetic expressions
+ * which scans its input once.
+ * <p>
+ * The precedence parser produces the same expressions as {@link SimpleParser},
+ * but rather than repeatedly searching and splitting the input for each operator,
+ * the input is tokenized once into the positions of its operators,
+ * and the text between them is parsed one precedence level at a time from left to right.
+ */
+public class PrecedenceParser implements Parser {
+    /** Operator names from lowest to highest precedence. */
+    private static final String OPERATORS = "=<+-*/";
+    /** The precedence level of text which does not contain any operators. */
+    private static final int LEAF = OPERATORS.length();
+
+    private final ExpressionFactory factory;
+
+    /**
+     * Construct a new parser.
+     * Parsed expressions are constructed using the expression factory.
+     *
+     * @param factory Factory used to construct parsed expressions.
+     */
+    public PrecedenceParser(ExpressionFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Attempt to parse a string expression into an expression.
+     * <p>
+     * Parsing follows the same rules as {@link SimpleParser#parse(String)}.
+     *
+     * <pre>
+     * {@code
+     * ExpressionFactory factory = new CoreFactory();
+     * Parser parser = new PrecedenceParser(factory);
+     * parser.parse("  42  "); // Constant(42)
+     * parser.parse("4 + 5 + 7 * 12 + 3"); // Plus(Constant(4), Constant(5), Times(Constant(7), Constant(12)), Constant(3))
+     * }</pre>
+     *
+     * @param input A string to attempt to parse.
+     * @return The result of parsing the expression.
+     * @throws ParseException If the string input is not recognisable as an expression.
+     */
+    @Override
+    public Expression parse(String input) throws ParseException {
+        try {
+            return new Parse(input).parse(0);
+        } catch (InvalidExpression e) {
+            throw new ParseException(e);
+        }
+    }
+
+    /**
+     * The state of parsing a single input.
+     * <p>
+     * The input is divided into slots of text separated by operators,
+     * such that operator i lies between slot i and slot i + 1.
+     */
+    private class Parse {
+        private final String input;
+        /** Position of each operator within the input. */
+        private final int[] operators;
+        /** Precedence level of each operator. */
+        private final int[] levels;
+        private final int count;
+        /** The slot at which the next operand begins. */
+        private int slot = 0;
+
+        private Parse(String input) {
+            this.input = input;
+            int[] positions = new int[8];
+            int[] precedence = new int[8];
+            int found = 0;
+            for (int i = 0; i < input.length(); i++) {
+                int level = OPERATORS.indexOf(input.charAt(i));
+                if (level >= 0) {
+                    if (found == positions.length) {
+                        positions = Arrays.copyOf(positions, found * 2);
+                        precedence = Arrays.copyOf(precedence, found * 2);
+                    }
+                    positions[found] = i;
+                    precedence[found] = level;
+                    found++;
+                }
+            }
+            this.operators = positions;
+            this.levels = precedence;
+            this.count = found;
+        }
+
+        private int slotStart(int slot) {
+            return slot == 0 ? 0 : operators[slot - 1] + 1;
+        }
+
+        private int slotEnd(int slot) {
+            return slot == count ? input.length() : operators[slot];
+        }
+
+        /**
+         * Parse the operand starting at the current slot,
+         * which extends over every operator of at least the given level.
+         */
+        private Expression parse(int level) throws ParseException, InvalidExpression {
+            if (level == LEAF) {
+                return leaf(slot);
+            }
+            if (isSignedNumber(level)) {
+                int start = operators[slot];
+                slot++;
+                int end = trimWhitespace(slotStart(slot), slotEnd(slot));
+                return factory.createConstant(Long.parseLong(input, start, end, 10));
+            }
+
+            int first = slot;
+            Expression operand = parse(level + 1);
+            if (slot == count || levels[slot] != level) {
+                return operand;
+            }
+
+            List<Expression> arguments = new ArrayList<>();
+            List<Integer> starts = new ArrayList<>();
+            arguments.add(operand);
+            starts.add(first);
+            List<Integer> ends = new ArrayList<>();
+            ends.add(slot);
+            while (slot < count && levels[slot] == level) {
+                slot++;
+                starts.add(slot);
+                arguments.add(parse(level + 1));
+                ends.add(slot);
+            }
+
+            // as with String.split, trailing empty operands are discarded
+            int size = arguments.size();
+            while (size > 0 && isEmptyOperand(starts.get(size - 1), ends.get(size - 1), first, slot)) {
+                size--;
+            }
+            Object[] args = arguments.subList(0, size).toArray();
+            return factory.createOperator(Character.toString(OPERATORS.charAt(level)), args);
+        }
+
+        /**
+         * Whether an operand has no text at all,
+         * once the whitespace surrounding the operator expression has been removed.
+         */
+        private boolean isEmptyOperand(int start, int end, int first, int last) {
+            if (start != end) {
+                return false;
+            }
+            int from = slotStart(start);
+            int to = slotEnd(start);
+            if (start == first) {
+                from = skipWhitespace(from, to);
+            }
+            if (start == last) {
+                to = trimWhitespace(from, to);
+            }
+            return from == to;
+        }
+
+        /**
+         * Whether the operand at the current slot is a signed number, e.g. -5,
+         * which must be parsed as a constant rather than an operator.
+         */
+        private boolean isSignedNumber(int level) {
+            if (slot >= count || levels[slot] < level) {
+                return false;
+            }
+            char sign = input.charAt(operators[slot]);
+            if (sign != '+' && sign != '-') {
+                return false;
+            }
+            if (slot + 1 < count && levels[slot + 1] >= level) {
+                return false;
+            }
+            if (skipWhitespace(slotStart(slot), slotEnd(slot)) != slotEnd(slot)) {
+                return false;
+            }
+            int digits = slotStart(slot + 1);
+            return isNumber(operators[slot], trimWhitespace(digits, slotEnd(slot + 1)));
+        }
+
+        /**
+         * Parse the text of a single slot, which contains no operators.
+         */
+        private Expression leaf(int slot) throws ParseException {
+            int start = skipWhitespace(slotStart(slot), slotEnd(slot));
+            int end = trimWhitespace(start, slotEnd(slot));
+            if (isNumber(start, end)) {
+                return factory.createConstant(Long.parseLong(input, start, end, 10));
+            }
+            for (int i = start; i < end; i++) {
+                char character = input.charAt(i);
+                if (!(Character.isAlphabetic(character) || Character.isDigit(character))) {
+                    throw new ParseException("Unknown input: " + input.substring(start, end));
+                }
+            }
+            if (start == end) {
+                return factory.createEmpty();
+            }
+            return factory.createReference(input.substring(start, end));
+        }
+
+        private int skipWhitespace(int start, int end) {
+            while (start < end && Character.isWhitespace(input.charAt(start))) {
+                start++;
+            }
+            return start;
+        }
+
+        private int trimWhitespace(int start, int end) {
+            while (end > start && Character.isWhitespace(input.charAt(end - 1))) {
+                end--;
+            }
+            return end;
+        }
+
+        /**
+         * Whether the text between start and end would be accepted by {@link Long#parseLong(String)}.
+         */
+        private boolean isNumber(int start, int end) {
+            int i = start;
+            boolean negative = false;
+            if (i < end && (input.charAt(i) == '+' || input.charAt(i) == '-')) {
+                negative = input.charAt(i) == '-';
+                i++;
+            }
+            if (i == end) {
+                return false;
+            }
+            // accumulate negatively, as the negative range is larger
+            long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+            long result = 0;
+            for (; i < end; i++) {
+                int digit = Character.digit(input.charAt(i), 10);
+                if (digit < 0 || result < limit / 10) {
+                    return false;
+                }
+                result *= 10;
+                if (result < limit + digit) {
+                    return false;
+                }
+                result -= digit;
+            }
+            return true;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package sheep.sheets;
 
 
-import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -10,11 +9,29 @@ import java.util.Optional;
  * <p>
  * Notably columns are represented as character, e.g. in cell A1,
  * the column is 0 and the row is 1.
+ * <p>
+ * Cell locations are immutable, so the {@link #of(int, int)} factory methods
+ * return shared canonical instances for commonly used locations rather than
+ * allocating a new instance on every call.
+ * The canonical instances are only kept for a fixed window of small coordinates,
+ * the first 1024 rows of columns A to Z, and once created are held for the life
+ * of the program, so the table never exceeds about a megabyte however large a sheet grows.
+ * Locations outside the window are allocated on each call.
  * @stage2
  */
 public class CellLocation {
+    /** Locations with a row below this bound are kept in the canonical table. */
+    private static final int CACHED_ROWS = 1 << 10;
+    /** Locations with a column below this bound are kept in the canonical table. */
+    private static final int CACHED_COLUMNS = 26;
+    /** Canonical instances, indexed by row then column, rows are filled on first use. */
+    private static final CellLocation[][] CANONICAL = new CellLocation[CACHED_ROWS][];
+
     private final int row;
     private final int column;
+    private final int hash;
+    /** The textual name of the location, computed on first use. */
+    private String name;
 
     /**
      * Construct a new cell location at the given row and column.
@@ -33,8 +50,7 @@ public class CellLocation {
      * @param column A character representing the column.
      */
     public CellLocation(int row, char column) {
-        this.row = row;
-        this.column = (column - 'A');
+        this(row, column - 'A');
     }
 
     /**
@@ -54,6 +70,64 @@ public class CellLocation {
     public CellLocation(int row, int column) {
         this.row = row;
         this.column = column;
+        this.hash = 31 * row + column;
+    }
+
+    /**
+     * A cell location at the given row and column.
+     * <p>
+     * Equivalent to {@link #CellLocation(int, int)} but returns a shared instance
+     * where possible, so repeated calls for the same location do not allocate.
+     * <pre>
+     * {@code
+     * CellLocation.of(4, 3) == CellLocation.of(4, 3) // true
+     * CellLocation.of(4, 3).equals(new CellLocation(4, 3)) // true
+     * }</pre>
+     *
+     * @requires row and column are greater than or equal to zero.
+     * @requires column is less than 26.
+     * @param row A number representing the row number.
+     * @param column A number representing the column.
+     * @return A cell location at the given row and column.
+     */
+    public static CellLocation of(int row, int column) {
+        if (row < 0 || row >= CACHED_ROWS || column < 0 || column >= CACHED_COLUMNS) {
+            return new CellLocation(row, column);
+        }
+        CellLocation[] cached = CANONICAL[row];
+        if (cached != null && cached[column] != null) {
+            return cached[column];
+        }
+        return canonical(row, column);
+    }
+
+    /**
+     * A cell location at the given row and column character, e.g. 'A'.
+     *
+     * @requires row is greater than or equal to zero, column is between 'A' and 'Z' inclusive.
+     * @param row A number representing the row number.
+     * @param column A character representing the column.
+     * @return A cell location at the given row and column.
+     * @see #of(int, int)
+     */
+    public static CellLocation of(int row, char column) {
+        return of(row, column - 'A');
+    }
+
+    /**
+     * Fill the canonical row containing the location and return its instance.
+     * Synchronised so that each location only ever has one canonical instance.
+     */
+    private static synchronized CellLocation canonical(int row, int column) {
+        CellLocation[] cached = CANONICAL[row];
+        if (cached == null) {
+            cached = new CellLocation[CACHED_COLUMNS];
+            for (int i = 0; i < CACHED_COLUMNS; i++) {
+                cached[i] = new CellLocation(row, i);
+            }
+            CANONICAL[row] = cached;
+        }
+        return cached[column];
     }
 
     /**
@@ -80,15 +154,13 @@ public class CellLocation {
             return Optional.empty();
         }
         char column = ref.charAt(0);
-        StringBuilder rowString = new StringBuilder();
         for (int i = 1; i < ref.length(); i++) {
             if (!Character.isDigit(ref.charAt(i))) {
                 return Optional.empty();
             }
-            rowString.append(ref.charAt(i));
         }
-        int row = Integer.parseInt(rowString.toString());
-        return Optional.of(new CellLocation(row, column));
+        int row = Integer.parseInt(ref, 1, ref.length(), 10);
+        return Optional.of(of(row, column));
     }
 
     /**
@@ -128,7 +200,7 @@ public class CellLocation {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(row, column);
+        return hash;
     }
 
     /**
@@ -137,7 +209,10 @@ public class CellLocation {
      */
     @Override
     public String toString() {
-        return "" + Character.toString(getColumn() + 'A') + getRow();
+        if (name == null) {
+            name = Character.toString(getColumn() + 'A') + getRow();
+        }
+        return name;
     }
 }
 
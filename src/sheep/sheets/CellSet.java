@@ -0,0 +1,170 @@
+package sheep.sheets;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of cell locations, stored as a sorted array of int keys.
+ * <p>
+ * Each location is packed into a single int, so a set costs four bytes per cell
+ * and membership is a binary search rather than a hash lookup of a boxed location.
+ * Locations must have a column less than 32 and a row less than 2<sup>26</sup>.
+ */
+final class CellSet extends AbstractSet<CellLocation> {
+    private static final int COLUMN_BITS = 5;
+    private static final int COLUMN_MASK = (1 << COLUMN_BITS) - 1;
+
+    /** A set without any locations. */
+    static final CellSet EMPTY = new CellSet(new int[0]);
+
+    private final int[] keys;
+
+    private CellSet(int[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * The int key of a cell location.
+     */
+    static int key(CellLocation location) {
+        return (location.getRow() << COLUMN_BITS) | location.getColumn();
+    }
+
+    /**
+     * The cell location of an int key.
+     */
+    static CellLocation location(int key) {
+        return CellLocation.of(key >>> COLUMN_BITS, key & COLUMN_MASK);
+    }
+
+    /**
+     * Whether the set contains the location with the given key.
+     */
+    boolean containsKey(int key) {
+        return Arrays.binarySearch(keys, key) >= 0;
+    }
+
+    /**
+     * The keys of every location in the set, in ascending order.
+     * The returned array must not be modified.
+     */
+    int[] keys() {
+        return keys;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof CellLocation location && containsKey(key(location));
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public Iterator<CellLocation> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < keys.length;
+            }
+
+            @Override
+            public CellLocation next() {
+                if (next >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                return location(keys[next++]);
+            }
+        };
+    }
+
+    /**
+     * Accumulates the keys of a new cell set in an open addressing hash table,
+     * so that no location is boxed while the set is built.
+     */
+    static final class Builder {
+        private static final int FREE = -1;
+        private int[] table = newTable(16);
+        private int size = 0;
+
+        private static int[] newTable(int capacity) {
+            int[] table = new int[capacity];
+            Arrays.fill(table, FREE);
+            return table;
+        }
+
+        /**
+         * Add the key to the set being built.
+         *
+         * @return true if the key was not already in the set.
+         */
+        boolean add(int key) {
+            if ((size + 1) * 2 > table.length) {
+                int[] old = table;
+                table = newTable(old.length * 2);
+                for (int existing : old) {
+                    if (existing != FREE) {
+                        insert(existing);
+                    }
+                }
+            }
+            if (insert(key)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean insert(int key) {
+            int mask = table.length - 1;
+            int slot = (key * 0x9E3779B9) >>> 1 & mask;
+            while (table[slot] != FREE) {
+                if (table[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = key;
+            return true;
+        }
+
+        /**
+         * Whether the key has been added to the set being built.
+         */
+        boolean contains(int key) {
+            int mask = table.length - 1;
+            int slot = (key * 0x9E3779B9) >>> 1 & mask;
+            while (table[slot] != FREE) {
+                if (table[slot] == key) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        /**
+         * The set of every key added so far.
+         */
+        CellSet build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int[] keys = new int[size];
+            int count = 0;
+            for (int key : table) {
+                if (key != FREE) {
+                    keys[count++] = key;
+                }
+            }
+            Arrays.sort(keys);
+            return new CellSet(keys);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+
+import java.util.Set;
+
+/**
+ * Storage backend for the cells of a {@link Sheet}.
+ * <p>
+ * A cell store only holds cells which have been written,
+ * the sheet resolves any other cell within its bounds to its default expression.
+ * Written cells remain stored if the sheet shrinks,
+ * so that they may be accessed if the sheet grows again.
+ */
+interface CellStore {
+    /**
+     * Whether a formula has been written to the cell at the given location.
+     *
+     * @param location A cell location.
+     * @return true if the location holds a formula and value.
+     */
+    boolean holds(CellLocation location);
+
+    /**
+     * The formula stored at the location.
+     *
+     * @param location A cell location.
+     * @return The formula at the location, or null if the location is not held.
+     */
+    Expression formulaAt(CellLocation location);
+
+    /**
+     * The value stored at the location.
+     *
+     * @param location A cell location.
+     * @return The value at the location, or null if the location is not held.
+     */
+    Expression valueAt(CellLocation location);
+
+    /**
+     * The cells which directly use the cell at the location.
+     *
+     * @param location A cell location.
+     * @return A read-only view of the cells which refer to the location,
+     *         empty if no cells refer to the location.
+     */
+    Set<CellLocation> usagesOf(CellLocation location);
+
+    /**
+     * The cells which the cell at the location directly uses,
+     * as recorded by {@link #addUsage(CellLocation, CellLocation)}.
+     *
+     * @param location A cell location.
+     * @return A read-only view of the cells the location refers to,
+     *         empty if the location refers to no cells.
+     */
+    Set<CellLocation> referencesOf(CellLocation location);
+
+    /**
+     * Store the formula at the location.
+     *
+     * @param location A cell location.
+     * @param formula The new formula.
+     */
+    void setFormula(CellLocation location, Expression formula);
+
+    /**
+     * Store the value at the location.
+     *
+     * @param location A cell location.
+     * @param value The new value.
+     * @requires a formula has been stored at the location.
+     */
+    void setValue(CellLocation location, Expression value);
+
+    /**
+     * Record that the cell at usage refers to the cell at location.
+     *
+     * @param location A cell location.
+     * @param usage The cell referring to location.
+     */
+    void addUsage(CellLocation location, CellLocation usage);
+
+    /**
+     * Record that the cell at usage no longer refers to the cell at location.
+     *
+     * @param location A cell location.
+     * @param usage The cell which referred to location.
+     */
+    void removeUsage(CellLocation location, CellLocation usage);
+
+    /**
+     * Every location held by this store, in no particular order.
+     *
+     * @return The held cell locations.
+     */
+    Iterable<CellLocation> locations();
+
+    /**
+     * Forget every cell held by this store.
+     */
+    void clear();
+}
@@ -0,0 +1,52 @@
+package sheep.sheets;
+
+import sheep.expression.TypeError;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Thrown if an update to a {@link Sheet} would introduce a reference loop.
+ * <p>
+ * A reference loop cannot be resolved to a value, so this is a kind of {@link TypeError}.
+ * The exception records the cells forming the loop, in the order that they refer
+ * to one another, starting and ending at the updated cell.
+ */
+public class CircularReference extends TypeError {
+    private final List<CellLocation> cycle;
+
+    /**
+     * Construct a new exception for the given loop of cells.
+     *
+     * @param cycle The cells forming the loop, where each cell refers to the next
+     *              and the first and last cells are the same.
+     * @requires cycle.size() &gt; 1
+     */
+    public CircularReference(List<CellLocation> cycle) {
+        super(describe(cycle));
+        this.cycle = List.copyOf(cycle);
+    }
+
+    private static String describe(List<CellLocation> cycle) {
+        StringJoiner path = new StringJoiner(" -> ");
+        for (CellLocation location : cycle) {
+            path.add(location.toString());
+        }
+        return path.toString();
+    }
+
+    /**
+     * The cells forming the loop, starting and ending at the updated cell.
+     * <pre>
+     * {@code
+     * sheet.update(new CellLocation(1, 'A'), new Reference("A2"));
+     * sheet.update(new CellLocation(2, 'A'), new Reference("A1")); // throws
+     * exception.getCycle() // [A2, A1, A2]
+     * }</pre>
+     *
+     * @return The cells forming the loop.
+     */
+    public List<CellLocation> getCycle() {
+        return cycle;
+    }
+}
@@ -0,0 +1,244 @@
+package sheep.sheets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Incremental reader of comma separated cells.
+ * <p>
+ * Characters are pushed into the reader in chunks of any size and every cell
+ * is passed to a {@link Handler} as soon as it is complete,
+ * so only the text of the current cell is ever held in memory.
+ * <p>
+ * Rows are separated by line breaks ({@code \n}, {@code \r\n} or {@code \r})
+ * and cells by commas, cells are not quoted.
+ * As with splitting the joined lines of a file on new lines,
+ * empty lines at the end of the input are ignored,
+ * and an input with no lines at all is a single row containing one empty cell.
+ */
+public class CsvReader {
+    /** The number of bytes read from a channel at once. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Receives the cells of the input as they are read.
+     */
+    public interface Handler {
+        /**
+         * Called with the content of each cell, in row-major order.
+         *
+         * @param row The row index of the cell.
+         * @param column The column index of the cell.
+         * @param content The text of the cell, excluding the separators.
+         */
+        void cell(int row, int column, String content);
+
+        /**
+         * Called instead of {@link #cell(int, int, String)} with the bytes of each cell
+         * when reading a {@link ByteBuffer}, so that the handler may read cells
+         * without decoding them.
+         * By default, the bytes are decoded and passed to {@link #cell(int, int, String)}.
+         *
+         * @param row The row index of the cell.
+         * @param column The column index of the cell.
+         * @param content The bytes of the cell, excluding the separators,
+         *                only valid until the call returns.
+         * @param charset The charset of the bytes.
+         */
+        default void cell(int row, int column, ByteBuffer content, Charset charset) {
+            cell(row, column, charset.decode(content).toString());
+        }
+
+        /**
+         * Called after the last cell of each row.
+         *
+         * @param row The row index that ended.
+         * @param columns The number of cells in the row.
+         */
+        void endRow(int row, int columns);
+    }
+
+    private final Handler handler;
+    private final StringBuilder field = new StringBuilder();
+    /** The buffer being read, in which the field is the bytes from fieldStart to fieldEnd. */
+    private ByteBuffer bytes = null;
+    private Charset charset = null;
+    private int fieldStart = 0;
+    private int fieldEnd = 0;
+    private int row = 0;
+    private int column = 0;
+    /** Empty lines which are only rows if a non-empty line follows them. */
+    private int emptyLines = 0;
+    private boolean anyLine = false;
+    private boolean afterCarriageReturn = false;
+
+    /**
+     * Construct a new reader which passes cells to the handler.
+     *
+     * @param handler The handler to receive each cell.
+     */
+    public CsvReader(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Read every cell from a channel, decoding its bytes with the given charset.
+     * The channel is read in fixed size chunks until it is exhausted,
+     * then {@link #finish()} is called.
+     *
+     * @param channel The channel to read from.
+     * @param charset The charset of the channel's bytes.
+     * @throws IOException If the channel cannot be read.
+     */
+    public void read(ReadableByteChannel channel, Charset charset) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        boolean end = false;
+        while (!end) {
+            end = channel.read(bytes) < 0;
+            bytes.flip();
+            decoder.decode(bytes, chars, end);
+            if (end) {
+                decoder.flush(chars);
+            }
+            chars.flip();
+            read(chars);
+            chars.clear();
+            // keep any partially decoded character for the next chunk
+            bytes.compact();
+        }
+        finish();
+    }
+
+    /**
+     * Read the next chunk of cells from the remaining bytes of a buffer, such as a mapped file.
+     * <p>
+     * Separators are found within the bytes themselves, so the charset must be
+     * ASCII compatible, such as UTF-8.
+     * Cells are passed to the handler as bytes by
+     * {@link Handler#cell(int, int, ByteBuffer, Charset)}, so nothing is decoded
+     * unless the handler decodes it.
+     * A cell may not span two buffers, so every buffer except the last
+     * must end with a line break. Once every buffer is read, call {@link #finish()}.
+     * Buffers should not be mixed with characters read by {@link #read(CharSequence)}.
+     *
+     * @param bytes The bytes to read, from their position to their limit.
+     * @param charset The ASCII compatible charset of the bytes.
+     */
+    public void read(ByteBuffer bytes, Charset charset) {
+        this.bytes = bytes;
+        this.charset = charset;
+        int limit = bytes.limit();
+        fieldStart = bytes.position();
+        for (int i = fieldStart; i < limit; i++) {
+            byte character = bytes.get(i);
+            if (afterCarriageReturn) {
+                afterCarriageReturn = false;
+                if (character == '\n') {
+                    fieldStart = i + 1;
+                    continue;
+                }
+            }
+            fieldEnd = i;
+            switch (character) {
+                case ',' -> {
+                    emitCell();
+                    column++;
+                }
+                case '\r' -> {
+                    afterCarriageReturn = true;
+                    endLine();
+                }
+                case '\n' -> endLine();
+                default -> {
+                    continue;
+                }
+            }
+            fieldStart = i + 1;
+        }
+        fieldEnd = limit;
+    }
+
+    /**
+     * Read the next chunk of characters.
+     *
+     * @param chars Characters following any previously read.
+     */
+    public void read(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            char character = chars.charAt(i);
+            if (afterCarriageReturn) {
+                afterCarriageReturn = false;
+                if (character == '\n') {
+                    continue;
+                }
+            }
+            switch (character) {
+                case ',' -> {
+                    emitCell();
+                    column++;
+                }
+                case '\r' -> {
+                    afterCarriageReturn = true;
+                    endLine();
+                }
+                case '\n' -> endLine();
+                default -> field.append(character);
+            }
+        }
+    }
+
+    /**
+     * Complete the final row, called once all characters have been read.
+     */
+    public void finish() {
+        if (column > 0 || !isFieldEmpty()) {
+            endLine();
+        } else if (!anyLine) {
+            handler.cell(0, 0, "");
+            handler.endRow(0, 1);
+        }
+    }
+
+    private void emitCell() {
+        if (column == 0) {
+            // the line is not empty, so earlier empty lines are rows
+            for (; emptyLines > 0; emptyLines--) {
+                handler.cell(row, 0, "");
+                handler.endRow(row, 1);
+                row++;
+            }
+        }
+        if (bytes == null) {
+            handler.cell(row, column, field.toString());
+            field.setLength(0);
+        } else {
+            handler.cell(row, column, bytes.slice(fieldStart, fieldEnd - fieldStart), charset);
+            fieldStart = fieldEnd;
+        }
+    }
+
+    private boolean isFieldEmpty() {
+        return bytes == null ? field.length() == 0 : fieldStart == fieldEnd;
+    }
+
+    private void endLine() {
+        anyLine = true;
+        if (column == 0 && isFieldEmpty()) {
+            emptyLines++;
+            return;
+        }
+        emitCell();
+        handler.endRow(row, column + 1);
+        row++;
+        column = 0;
+    }
+}
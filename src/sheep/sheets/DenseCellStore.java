@@ -0,0 +1,149 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cell storage backed by row-major arrays indexed by {@code row * columns + column}.
+ * <p>
+ * Intended for sheets where most cells are populated.
+ * Formulas and values are held in plain arrays rather than hash tables,
+ * so reading a cell returns the stored expression without allocating,
+ * and usages are held in a {@link DependencyGraph}.
+ * <p>
+ * The arrays grow to fit any location that is written, and never shrink,
+ * so cells outside the current sheet dimensions are remembered.
+ */
+class DenseCellStore implements CellStore {
+    private int rows;
+    private int columns;
+    /** Formulas of each cell, null where a cell has not been written. */
+    private Expression[] formulas;
+    /** Values of each cell, null where a cell has not been written. */
+    private Expression[] values;
+    private final DependencyGraph usages = new DependencyGraph();
+
+    /**
+     * Construct a new dense store with capacity for the given dimensions.
+     *
+     * @param rows Initial number of rows to allocate.
+     * @param columns Initial number of columns to allocate.
+     * @requires rows &ge; 0 &amp;&amp; columns &ge; 0
+     */
+    DenseCellStore(int rows, int columns) {
+        allocate(rows, columns);
+    }
+
+    private void allocate(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.formulas = new Expression[rows * columns];
+        this.values = new Expression[rows * columns];
+    }
+
+    private boolean inBounds(CellLocation location) {
+        return location.getRow() >= 0 && location.getRow() < rows
+                && location.getColumn() >= 0 && location.getColumn() < columns;
+    }
+
+    private int index(CellLocation location) {
+        return location.getRow() * columns + location.getColumn();
+    }
+
+    /**
+     * Grow the arrays so that the location is in bounds, keeping existing cells.
+     */
+    private void ensureCapacity(CellLocation location) {
+        if (inBounds(location)) {
+            return;
+        }
+        Expression[] oldFormulas = formulas;
+        Expression[] oldValues = values;
+        int oldRows = rows;
+        int oldColumns = columns;
+
+        // grow rows geometrically, as sheets tend to grow downwards
+        int newRows = Math.max(rows, Math.max(location.getRow() + 1, rows + rows / 2));
+        int newColumns = Math.max(columns, location.getColumn() + 1);
+        allocate(newRows, newColumns);
+        for (int row = 0; row < oldRows; row++) {
+            System.arraycopy(oldFormulas, row * oldColumns, formulas, row * columns, oldColumns);
+            System.arraycopy(oldValues, row * oldColumns, values, row * columns, oldColumns);
+        }
+    }
+
+    @Override
+    public boolean holds(CellLocation location) {
+        return inBounds(location) && formulas[index(location)] != null;
+    }
+
+    @Override
+    public Expression formulaAt(CellLocation location) {
+        if (!inBounds(location)) {
+            return null;
+        }
+        return formulas[index(location)];
+    }
+
+    @Override
+    public Expression valueAt(CellLocation location) {
+        if (!holds(location)) {
+            return null;
+        }
+        return values[index(location)];
+    }
+
+    @Override
+    public Set<CellLocation> usagesOf(CellLocation location) {
+        return usages.usagesOf(location);
+    }
+
+    @Override
+    public Set<CellLocation> referencesOf(CellLocation location) {
+        return usages.referencesOf(location);
+    }
+
+    @Override
+    public void setFormula(CellLocation location, Expression formula) {
+        ensureCapacity(location);
+        formulas[index(location)] = formula;
+    }
+
+    @Override
+    public void setValue(CellLocation location, Expression value) {
+        ensureCapacity(location);
+        values[index(location)] = value;
+    }
+
+    @Override
+    public void addUsage(CellLocation location, CellLocation usage) {
+        usages.addEdge(location, usage);
+    }
+
+    @Override
+    public void removeUsage(CellLocation location, CellLocation usage) {
+        usages.removeEdge(location, usage);
+    }
+
+    @Override
+    public Iterable<CellLocation> locations() {
+        List<CellLocation> locations = new ArrayList<>();
+        for (int index = 0; index < formulas.length; index++) {
+            if (formulas[index] != null) {
+                locations.add(CellLocation.of(index / columns, index % columns));
+            }
+        }
+        return locations;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(formulas, null);
+        Arrays.fill(values, null);
+        usages.clear();
+    }
+}
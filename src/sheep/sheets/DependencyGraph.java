@@ -0,0 +1,263 @@
+package sheep.sheets;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The references between the cells of a sheet,
+ * held as a directed graph keyed by the packed int keys of {@link CellSet#key(CellLocation)}.
+ * <p>
+ * Each cell with an edge is a node of the graph, found through an open addressing table.
+ * A node lists the keys of the cells it is used by and the cells it refers to
+ * in primitive int arrays, so an edge costs eight bytes rather than
+ * a hash set entry and boxed location in each direction.
+ * <p>
+ * A node is kept once its cell has had an edge, until the graph is cleared,
+ * but its arrays are released when it has no edges left.
+ */
+final class DependencyGraph {
+    private static final int FREE = -1;
+    private static final int[] NONE = new int[0];
+
+    /** Node index of each cell key, FREE where a slot is empty. */
+    private int[] table = newTable(16);
+    private int[] keys = new int[8];
+    private int[][] usages = new int[8][];
+    private int[] usageCounts = new int[8];
+    private int[][] references = new int[8][];
+    private int[] referenceCounts = new int[8];
+    private int nodes = 0;
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, FREE);
+        return table;
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(table.length) + 1);
+    }
+
+    /**
+     * The node index of the cell key, or FREE if the cell has no node.
+     */
+    private int find(int key) {
+        int mask = table.length - 1;
+        for (int slot = slot(key); table[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[table[slot]] == key) {
+                return table[slot];
+            }
+        }
+        return FREE;
+    }
+
+    /**
+     * The node index of the cell key, adding a node if the cell has none.
+     */
+    private int node(int key) {
+        int found = find(key);
+        if (found != FREE) {
+            return found;
+        }
+        if (nodes == keys.length) {
+            int capacity = nodes * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            usages = Arrays.copyOf(usages, capacity);
+            usageCounts = Arrays.copyOf(usageCounts, capacity);
+            references = Arrays.copyOf(references, capacity);
+            referenceCounts = Arrays.copyOf(referenceCounts, capacity);
+        }
+        if ((nodes + 1) * 2 > table.length) {
+            table = newTable(table.length * 2);
+            for (int node = 0; node < nodes; node++) {
+                insert(node);
+            }
+        }
+        keys[nodes] = key;
+        usages[nodes] = NONE;
+        references[nodes] = NONE;
+        insert(nodes);
+        return nodes++;
+    }
+
+    private void insert(int node) {
+        int mask = table.length - 1;
+        int slot = slot(keys[node]);
+        while (table[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = node;
+    }
+
+    private static int indexOf(int[] adjacent, int count, int key) {
+        for (int i = 0; i < count; i++) {
+            if (adjacent[i] == key) {
+                return i;
+            }
+        }
+        return FREE;
+    }
+
+    private static int[] append(int[] adjacent, int count, int key) {
+        if (count == adjacent.length) {
+            adjacent = Arrays.copyOf(adjacent, Math.max(2, count * 2));
+        }
+        adjacent[count] = key;
+        return adjacent;
+    }
+
+    /**
+     * Record that the cell at usage refers to the cell at reference.
+     *
+     * @param reference The cell referred to.
+     * @param usage The cell referring to reference.
+     * @return true if the edge was not already in the graph.
+     */
+    boolean addEdge(CellLocation reference, CellLocation usage) {
+        int referenceKey = CellSet.key(reference);
+        int usageKey = CellSet.key(usage);
+        int from = node(referenceKey);
+        int to = node(usageKey);
+        // a formula refers to few cells, so its references are the shorter list to search
+        if (indexOf(references[to], referenceCounts[to], referenceKey) != FREE) {
+            return false;
+        }
+        references[to] = append(references[to], referenceCounts[to]++, referenceKey);
+        usages[from] = append(usages[from], usageCounts[from]++, usageKey);
+        return true;
+    }
+
+    /**
+     * Record that the cell at usage no longer refers to the cell at reference.
+     *
+     * @param reference The cell which was referred to.
+     * @param usage The cell which referred to reference.
+     * @return true if the edge was in the graph.
+     */
+    boolean removeEdge(CellLocation reference, CellLocation usage) {
+        int referenceKey = CellSet.key(reference);
+        int usageKey = CellSet.key(usage);
+        int from = find(referenceKey);
+        int to = find(usageKey);
+        if (from == FREE || to == FREE) {
+            return false;
+        }
+        int index = indexOf(references[to], referenceCounts[to], referenceKey);
+        if (index == FREE) {
+            return false;
+        }
+        referenceCounts[to] = remove(references[to], referenceCounts[to], index);
+        if (referenceCounts[to] == 0) {
+            references[to] = NONE;
+        }
+        usageCounts[from] = remove(usages[from], usageCounts[from],
+                indexOf(usages[from], usageCounts[from], usageKey));
+        if (usageCounts[from] == 0) {
+            usages[from] = NONE;
+        }
+        return true;
+    }
+
+    /**
+     * Remove the key at the index by moving the last key into its place.
+     *
+     * @return The new number of keys.
+     */
+    private static int remove(int[] adjacent, int count, int index) {
+        adjacent[index] = adjacent[count - 1];
+        return count - 1;
+    }
+
+    /**
+     * The cells which directly refer to the cell at the location.
+     *
+     * @param location A cell location.
+     * @return A read-only view of the cells using the location.
+     */
+    Set<CellLocation> usagesOf(CellLocation location) {
+        return new Adjacent(CellSet.key(location), true);
+    }
+
+    /**
+     * The cells which the cell at the location directly refers to.
+     *
+     * @param location A cell location.
+     * @return A read-only view of the cells referred to by the location.
+     */
+    Set<CellLocation> referencesOf(CellLocation location) {
+        return new Adjacent(CellSet.key(location), false);
+    }
+
+    /**
+     * Remove every edge and node of the graph.
+     */
+    void clear() {
+        Arrays.fill(table, FREE);
+        Arrays.fill(usages, 0, nodes, null);
+        Arrays.fill(usageCounts, 0, nodes, 0);
+        Arrays.fill(references, 0, nodes, null);
+        Arrays.fill(referenceCounts, 0, nodes, 0);
+        nodes = 0;
+    }
+
+    /**
+     * The cells adjacent to a cell in one direction, read from the graph as it changes.
+     */
+    private final class Adjacent extends AbstractSet<CellLocation> {
+        private final int key;
+        private final boolean usedBy;
+
+        private Adjacent(int key, boolean usedBy) {
+            this.key = key;
+            this.usedBy = usedBy;
+        }
+
+        private int[] keys(int node) {
+            return usedBy ? usages[node] : references[node];
+        }
+
+        private int count(int node) {
+            return node == FREE ? 0 : usedBy ? usageCounts[node] : referenceCounts[node];
+        }
+
+        @Override
+        public int size() {
+            return count(find(key));
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof CellLocation location)) {
+                return false;
+            }
+            int node = find(key);
+            return node != FREE && indexOf(keys(node), count(node), CellSet.key(location)) != FREE;
+        }
+
+        @Override
+        public Iterator<CellLocation> iterator() {
+            int node = find(key);
+            int[] adjacent = node == FREE ? NONE : keys(node);
+            int count = count(node);
+            return new Iterator<>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < count;
+                }
+
+                @Override
+                public CellLocation next() {
+                    if (next >= count) {
+                        throw new NoSuchElementException();
+                    }
+                    return CellSet.location(adjacent[next++]);
+                }
+            };
+        }
+    }
+}
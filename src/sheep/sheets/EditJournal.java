@@ -0,0 +1,353 @@
+package sheep.sheets;
+
+import sheep.core.UpdateBatch;
+import sheep.expression.Expression;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A write-ahead journal of the edits made to a {@link Sheet}.
+ * <p>
+ * Once attached to a sheet, every successful update is recorded as the location
+ * and rendered formula of each updated cell, along with any clearing or
+ * resizing of the sheet.
+ * Records are buffered while the sheet is edited, then written to the journal file
+ * together with a single force to disk once enough records are pending or
+ * {@link #commit()} is called, so the cost of an edit is a sequential append
+ * shared with its neighbours.
+ * Records are only written once the edit which made them is complete and the sheet
+ * is unlocked, so readers and other edits never wait for the disk.
+ * Records which cannot be written stay pending and are written by the next commit,
+ * but records which have not been committed are lost if the program crashes.
+ * <p>
+ * The journal is replayed over a snapshot of the sheet in the format of {@link Sheet#encode()}.
+ * A checkpoint writes a new snapshot and empties the journal.
+ * Every record sets the state of the sheet outright, so replaying a journal over
+ * a snapshot taken after its last record leaves the snapshot unchanged,
+ * and a crash between writing the snapshot and emptying the journal loses nothing.
+ */
+public class EditJournal implements Closeable {
+    /** The number of journal bytes after which a commit also checkpoints the sheet. */
+    private static final long CHECKPOINT_BYTES = 4 << 20;
+
+    private final Path snapshot;
+    private final Path journal;
+    private final int groupSize;
+    private final long checkpointBytes;
+    private final FileChannel channel;
+    /** Held while writing the journal or snapshot files, so that writes are not interleaved. */
+    private final Object writing = new Object();
+    /** The records which have not been written, guarded by this journal. */
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingRecords = 0;
+    private volatile Sheet sheet = null;
+
+    /**
+     * Open the journal, creating the journal file if it does not exist.
+     *
+     * @param snapshot The file holding the most recent snapshot of the sheet.
+     * @param journal The file to append edits to.
+     * @param groupSize The number of records which are committed together.
+     * @throws IOException If the journal file cannot be opened.
+     * @throws IllegalArgumentException If the group size is not positive.
+     */
+    public EditJournal(Path snapshot, Path journal, int groupSize) throws IOException {
+        this(snapshot, journal, groupSize, CHECKPOINT_BYTES);
+    }
+
+    /**
+     * Open the journal, checkpointing the sheet once the journal file is larger than
+     * the given number of bytes.
+     */
+    EditJournal(Path snapshot, Path journal, int groupSize, long checkpointBytes)
+            throws IOException {
+        if (groupSize <= 0) {
+            throw new IllegalArgumentException("Group size must be positive: " + groupSize);
+        }
+        this.snapshot = snapshot;
+        this.journal = journal;
+        this.groupSize = groupSize;
+        this.checkpointBytes = checkpointBytes;
+        this.channel = FileChannel.open(journal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Recover the sheet from the snapshot and journal, then record every later edit of the sheet.
+     * <p>
+     * If there is no snapshot, the journal is replayed over the sheet as it is.
+     * The snapshot and journal are read before the sheet is modified,
+     * then applied to the sheet as a single edit.
+     *
+     * @param sheet The sheet to recover and journal.
+     * @throws IOException If the snapshot or journal cannot be read.
+     */
+    public void recover(Sheet sheet) throws IOException {
+        sheet.setJournal(null);
+        List<Runnable> edits = new ArrayList<>();
+        try {
+            String encoded = Files.readString(snapshot, StandardCharsets.UTF_8);
+            String[] lines = encoded.split("\n", -1);
+            int columns = 1;
+            UpdateBatch batch = new UpdateBatch();
+            for (int row = 0; row < lines.length; row++) {
+                String[] cells = lines[row].split("\\|", -1);
+                columns = Math.max(columns, cells.length);
+                for (int column = 0; column < cells.length; column++) {
+                    batch.add(row, column, cells[column]);
+                }
+            }
+            int snapshotColumns = columns;
+            edits.add(() -> {
+                sheet.clear();
+                sheet.updateDimensions(lines.length, snapshotColumns);
+                apply(sheet, batch);
+            });
+        } catch (NoSuchFileException e) {
+            // nothing has been checkpointed yet
+        }
+        replay(sheet, edits);
+        sheet.edit(() -> edits.forEach(Runnable::run));
+        this.sheet = sheet;
+        sheet.setJournal(this);
+    }
+
+    /**
+     * Read the journal, adding the edits it records to the list in order.
+     */
+    private void replay(Sheet sheet, List<Runnable> edits) throws IOException {
+        UpdateBatch batch = new UpdateBatch();
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                if (record.isEmpty()) {
+                    continue;
+                }
+                String[] fields = record.substring(1).split(",", 3);
+                try {
+                    switch (record.charAt(0)) {
+                        case 'U' -> batch.add(Integer.parseInt(fields[0]),
+                                Integer.parseInt(fields[1]), fields[2]);
+                        case 'D' -> {
+                            int rows = Integer.parseInt(fields[0]);
+                            int columns = Integer.parseInt(fields[1]);
+                            UpdateBatch updates = batch;
+                            edits.add(() -> {
+                                apply(sheet, updates);
+                                sheet.updateDimensions(rows, columns);
+                            });
+                            batch = new UpdateBatch();
+                        }
+                        case 'C' -> {
+                            UpdateBatch updates = batch;
+                            edits.add(() -> {
+                                apply(sheet, updates);
+                                sheet.clear();
+                            });
+                            batch = new UpdateBatch();
+                        }
+                        default -> {
+                            // a record torn by a crash, skip it
+                        }
+                    }
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    // a record torn by a crash, skip it
+                }
+            }
+        }
+        UpdateBatch updates = batch;
+        edits.add(() -> apply(sheet, updates));
+    }
+
+    /**
+     * Apply the batch to the sheet, falling back to one cell at a time
+     * so that a single invalid cell does not discard the rest.
+     */
+    private static void apply(Sheet sheet, UpdateBatch batch) {
+        if (batch.isEmpty() || sheet.updateAll(batch).isSuccess()) {
+            return;
+        }
+        for (UpdateBatch.Entry entry : batch.entries()) {
+            sheet.update(entry.getRow(), entry.getColumn(), entry.getInput());
+        }
+    }
+
+    /**
+     * Record that the formula at the location was updated.
+     */
+    void recordUpdate(CellLocation location, Expression formula) {
+        append("U" + location.getRow() + "," + location.getColumn() + ","
+                + formula.render());
+    }
+
+    /**
+     * Record that the sheet was resized.
+     */
+    void recordDimensions(int rows, int columns) {
+        append("D" + rows + "," + columns);
+    }
+
+    /**
+     * Record that every cell of the sheet was cleared.
+     */
+    void recordClear() {
+        append("C");
+    }
+
+    private synchronized void append(String record) {
+        pending.append(record).append('\n');
+        pendingRecords++;
+    }
+
+    /**
+     * Take every pending record, appending them to records.
+     *
+     * @return The number of records taken.
+     */
+    private synchronized int take(StringBuilder records) {
+        int taken = pendingRecords;
+        records.append(pending);
+        pending.setLength(0);
+        pendingRecords = 0;
+        return taken;
+    }
+
+    /**
+     * Return records which could not be written to the front of the pending records.
+     */
+    private synchronized void untake(CharSequence records, int count) {
+        pending.insert(0, records);
+        pendingRecords += count;
+    }
+
+    private synchronized boolean isFull() {
+        return pendingRecords >= groupSize;
+    }
+
+    /**
+     * Commit the pending records if enough are pending to form a group.
+     * Called by the sheet once an edit is complete and the sheet is unlocked.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    void flush() throws IOException {
+        if (isFull()) {
+            commit();
+        }
+    }
+
+    /**
+     * Write every pending record to the journal and force them to disk.
+     * <p>
+     * Once the journal grows large, the sheet is checkpointed.
+     * If the records cannot be written, they stay pending.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    public void commit() throws IOException {
+        synchronized (writing) {
+            StringBuilder records = new StringBuilder();
+            write(records, take(records));
+            if (sheet != null && channel.size() > checkpointBytes) {
+                checkpoint();
+            }
+        }
+    }
+
+    /**
+     * Append the records to the journal file and force them to disk.
+     * If they cannot be written, the journal file is returned to its previous length
+     * and the records are returned to the pending records.
+     */
+    private void write(CharSequence records, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        long length = channel.size();
+        try {
+            ByteBuffer buffer = StandardCharsets.UTF_8.encode(records.toString());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(length);
+            } catch (IOException truncate) {
+                e.addSuppressed(truncate);
+            }
+            untake(records, count);
+            throw e;
+        }
+    }
+
+    /**
+     * Write a snapshot of the sheet and empty the journal.
+     * <p>
+     * The snapshot is taken between edits, together with the pending records it includes,
+     * which are committed before the snapshot is written so that nothing is lost
+     * if the snapshot cannot be written.
+     * The snapshot is encoded and written once the sheet is unlocked.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     * @throws IllegalStateException If the journal has not recovered a sheet.
+     */
+    public void checkpoint() throws IOException {
+        Sheet sheet = this.sheet;
+        if (sheet == null) {
+            throw new IllegalStateException("Journal is not attached to a sheet");
+        }
+        synchronized (writing) {
+            StringBuilder records = new StringBuilder();
+            int[] count = new int[1];
+            SheetSnapshot current = sheet.snapshot(() -> count[0] = take(records));
+            write(records, count[0]);
+
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            Files.writeString(temporary, current.encode(), StandardCharsets.UTF_8);
+            try (FileChannel written = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                written.force(false);
+            }
+            try {
+                Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // every record in the journal is part of the snapshot,
+            // later records are still pending
+            channel.truncate(0);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Commit any pending records and close the journal file.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (sheet != null) {
+            sheet.setJournal(null);
+        }
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -11,6 +11,9 @@ import java.util.Map;
  * that renders cells different colours based on the content.
  * <p>
  * Cells containing a value of 1-8 will have a different background colour.
+ * <p>
+ * The cells of a game sheet keep their earlier versions,
+ * so edits may be undone with {@link #undo()} and {@link #redo()}.
  */
 public class GameSheet extends Sheet {
     /**
@@ -28,7 +31,7 @@ public class GameSheet extends Sheet {
      */
     public GameSheet(Parser parser, Map<String, Expression> builtins,
                      Expression defaultExpression, int rows, int columns) {
-        super(parser, builtins, defaultExpression, rows, columns);
+        super(parser, builtins, defaultExpression, rows, columns, new PersistentCellStore());
     }
 
     @Override
@@ -0,0 +1,76 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cell storage backed by hash maps keyed by cell location.
+ * <p>
+ * Suitable for sheets of any shape, at the cost of a map entry per written cell in each map.
+ */
+class HashCellStore implements CellStore {
+    private final Map<CellLocation, Expression> formulas = new HashMap<>();
+    private final Map<CellLocation, Expression> values = new HashMap<>();
+    private final DependencyGraph usages = new DependencyGraph();
+
+    @Override
+    public boolean holds(CellLocation location) {
+        return formulas.containsKey(location);
+    }
+
+    @Override
+    public Expression formulaAt(CellLocation location) {
+        return formulas.get(location);
+    }
+
+    @Override
+    public Expression valueAt(CellLocation location) {
+        return values.get(location);
+    }
+
+    @Override
+    public Set<CellLocation> usagesOf(CellLocation location) {
+        return usages.usagesOf(location);
+    }
+
+    @Override
+    public Set<CellLocation> referencesOf(CellLocation location) {
+        return usages.referencesOf(location);
+    }
+
+    @Override
+    public void setFormula(CellLocation location, Expression formula) {
+        formulas.put(location, formula);
+    }
+
+    @Override
+    public void setValue(CellLocation location, Expression value) {
+        values.put(location, value);
+    }
+
+    @Override
+    public void addUsage(CellLocation location, CellLocation usage) {
+        usages.addEdge(location, usage);
+    }
+
+    @Override
+    public void removeUsage(CellLocation location, CellLocation usage) {
+        usages.removeEdge(location, usage);
+    }
+
+    @Override
+    public Iterable<CellLocation> locations() {
+        return Collections.unmodifiableSet(formulas.keySet());
+    }
+
+    @Override
+    public void clear() {
+        formulas.clear();
+        values.clear();
+        usages.clear();
+    }
+}
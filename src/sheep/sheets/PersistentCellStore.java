@@ -0,0 +1,323 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cell storage which keeps every earlier version of its formulas and values.
+ * <p>
+ * Rows are held in a 32-way trie indexed by row number.
+ * Writing a cell copies only the path from the root of the trie to the row of the cell,
+ * sharing every other node with earlier versions,
+ * so a version costs memory proportional to the logarithm of the number of rows
+ * rather than the size of the sheet.
+ * <p>
+ * Between calls to {@link #version()}, nodes which have already been copied are
+ * written in place, so updating many cells at once copies each path only once.
+ * <p>
+ * Usages are derived from the formulas and are not versioned,
+ * callers which {@link #restore(Version)} a version must update the usages
+ * of every cell whose formula changed, see {@link #changedFormulas(Version, Version)}.
+ */
+class PersistentCellStore implements CellStore {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    /**
+     * An interior node of the trie, holding either nodes or rows.
+     */
+    private static final class Node {
+        private final Object edit;
+        private final Object[] children;
+
+        private Node(Object edit, Object[] children) {
+            this.edit = edit;
+            this.children = children;
+        }
+    }
+
+    /**
+     * The formulas and values of a row, indexed by column.
+     */
+    private static final class Row {
+        private final Object edit;
+        private Expression[] formulas;
+        private Expression[] values;
+
+        private Row(Object edit, Expression[] formulas, Expression[] values) {
+            this.edit = edit;
+            this.formulas = formulas;
+            this.values = values;
+        }
+    }
+
+    /**
+     * An immutable version of the formulas and values of a store.
+     * <p>
+     * The nodes of a version are never written once it has been taken,
+     * so a version may be read from any thread without locking.
+     *
+     * @param root The root node of the trie, or null if no cells are stored.
+     * @param shift The number of bits of the row number below the root node.
+     */
+    record Version(Node root, int shift) {
+        /**
+         * The formula stored at the location in this version.
+         *
+         * @param location A cell location.
+         * @return The formula at the location, or null if the location is not held.
+         */
+        Expression formulaAt(CellLocation location) {
+            Row row = find(root, shift, location.getRow());
+            if (row == null || location.getColumn() >= row.formulas.length) {
+                return null;
+            }
+            return row.formulas[location.getColumn()];
+        }
+
+        /**
+         * The value stored at the location in this version.
+         *
+         * @param location A cell location.
+         * @return The value at the location, or null if the location is not held.
+         */
+        Expression valueAt(CellLocation location) {
+            Row row = find(root, shift, location.getRow());
+            if (row == null || location.getColumn() >= row.values.length) {
+                return null;
+            }
+            return row.values[location.getColumn()];
+        }
+    }
+
+    private Node root = null;
+    private int shift = 0;
+    /** Marks the nodes which were copied since the last version was taken. */
+    private Object edit = new Object();
+    private final DependencyGraph usages = new DependencyGraph();
+
+    /**
+     * The current formulas and values of the store.
+     * Later writes do not modify the returned version.
+     *
+     * @return The current version of the store.
+     */
+    Version version() {
+        edit = new Object();
+        return new Version(root, shift);
+    }
+
+    /**
+     * Replace the formulas and values of the store with those of an earlier version.
+     * Usages are left unchanged.
+     *
+     * @param version A version previously returned by {@link #version()}.
+     */
+    void restore(Version version) {
+        root = version.root();
+        shift = version.shift();
+        edit = new Object();
+    }
+
+    private static Row find(Node root, int shift, int row) {
+        if (root == null || ((long) row >>> (shift + BITS)) != 0) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.children[(row >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (Row) node.children[row & MASK];
+    }
+
+    /**
+     * The row which may be written by the current edit,
+     * copying the path to the row if it belongs to an earlier version.
+     */
+    private Row writable(CellLocation location) {
+        int row = location.getRow();
+        if (root == null) {
+            root = new Node(edit, new Object[WIDTH]);
+            shift = 0;
+        }
+        while (((long) row >>> (shift + BITS)) != 0) {
+            Object[] children = new Object[WIDTH];
+            children[0] = root;
+            root = new Node(edit, children);
+            shift += BITS;
+        }
+
+        root = writable(root);
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            int index = (row >>> level) & MASK;
+            Node child = (Node) node.children[index];
+            child = child == null ? new Node(edit, new Object[WIDTH]) : writable(child);
+            node.children[index] = child;
+            node = child;
+        }
+
+        int index = row & MASK;
+        Row cells = (Row) node.children[index];
+        int width = location.getColumn() + 1;
+        if (cells == null) {
+            cells = new Row(edit, new Expression[width], new Expression[width]);
+        } else if (cells.edit != edit) {
+            width = Math.max(width, cells.formulas.length);
+            cells = new Row(edit, Arrays.copyOf(cells.formulas, width),
+                    Arrays.copyOf(cells.values, width));
+        } else if (cells.formulas.length < width) {
+            cells.formulas = Arrays.copyOf(cells.formulas, width);
+            cells.values = Arrays.copyOf(cells.values, width);
+        }
+        node.children[index] = cells;
+        return cells;
+    }
+
+    private Node writable(Node node) {
+        if (node.edit == edit) {
+            return node;
+        }
+        return new Node(edit, node.children.clone());
+    }
+
+    @Override
+    public boolean holds(CellLocation location) {
+        return formulaAt(location) != null;
+    }
+
+    @Override
+    public Expression formulaAt(CellLocation location) {
+        Row row = find(root, shift, location.getRow());
+        if (row == null || location.getColumn() >= row.formulas.length) {
+            return null;
+        }
+        return row.formulas[location.getColumn()];
+    }
+
+    @Override
+    public Expression valueAt(CellLocation location) {
+        Row row = find(root, shift, location.getRow());
+        if (row == null || location.getColumn() >= row.values.length) {
+            return null;
+        }
+        return row.values[location.getColumn()];
+    }
+
+    @Override
+    public Set<CellLocation> usagesOf(CellLocation location) {
+        return usages.usagesOf(location);
+    }
+
+    @Override
+    public Set<CellLocation> referencesOf(CellLocation location) {
+        return usages.referencesOf(location);
+    }
+
+    @Override
+    public void setFormula(CellLocation location, Expression formula) {
+        writable(location).formulas[location.getColumn()] = formula;
+    }
+
+    @Override
+    public void setValue(CellLocation location, Expression value) {
+        writable(location).values[location.getColumn()] = value;
+    }
+
+    @Override
+    public void addUsage(CellLocation location, CellLocation usage) {
+        usages.addEdge(location, usage);
+    }
+
+    @Override
+    public void removeUsage(CellLocation location, CellLocation usage) {
+        usages.removeEdge(location, usage);
+    }
+
+    @Override
+    public Iterable<CellLocation> locations() {
+        List<CellLocation> locations = new ArrayList<>();
+        changedFormulas(null, root, shift, 0, locations);
+        return locations;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        shift = 0;
+        edit = new Object();
+        usages.clear();
+    }
+
+    /**
+     * The locations at which the formula differs between two versions.
+     * Subtrees shared by both versions are skipped,
+     * so the cost is proportional to the number of rows written between the versions.
+     *
+     * @param from The earlier version.
+     * @param to The later version.
+     * @return The locations whose formula in one version is not the formula in the other.
+     */
+    List<CellLocation> changedFormulas(Version from, Version to) {
+        Node fromRoot = from.root();
+        Node toRoot = to.root();
+        int level = Math.max(from.shift(), to.shift());
+        fromRoot = grow(fromRoot, from.shift(), level);
+        toRoot = grow(toRoot, to.shift(), level);
+        List<CellLocation> changed = new ArrayList<>();
+        changedFormulas(fromRoot, toRoot, level, 0, changed);
+        return changed;
+    }
+
+    /**
+     * Wrap the node in parents until it is at the given level.
+     */
+    private static Node grow(Node node, int shift, int level) {
+        for (; node != null && shift < level; shift += BITS) {
+            Object[] children = new Object[WIDTH];
+            children[0] = node;
+            node = new Node(null, children);
+        }
+        return node;
+    }
+
+    private static void changedFormulas(Node from, Node to, int level, int base,
+                                        List<CellLocation> changed) {
+        if (from == to) {
+            return;
+        }
+        for (int index = 0; index < WIDTH; index++) {
+            Object left = from == null ? null : from.children[index];
+            Object right = to == null ? null : to.children[index];
+            if (left == right) {
+                continue;
+            }
+            int start = base + (index << level);
+            if (level > 0) {
+                changedFormulas((Node) left, (Node) right, level - BITS, start, changed);
+            } else {
+                changedFormulas((Row) left, (Row) right, start, changed);
+            }
+        }
+    }
+
+    private static void changedFormulas(Row from, Row to, int row, List<CellLocation> changed) {
+        Expression[] left = from == null ? new Expression[0] : from.formulas;
+        Expression[] right = to == null ? new Expression[0] : to.formulas;
+        for (int column = 0; column < Math.max(left.length, right.length); column++) {
+            Expression before = column < left.length ? left[column] : null;
+            Expression after = column < right.length ? right[column] : null;
+            if (before != after) {
+                changed.add(CellLocation.of(row, column));
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package sheep.sheets;
+
+/**
+ * The outcome of recalculating every cell of a sheet.
+ *
+ * @see Sheet#recalculateAll()
+ */
+public final class Recalculation {
+    private final long cells;
+    private final int levels;
+    private final long nanos;
+
+    /**
+     * Construct the outcome of a recalculation.
+     */
+    Recalculation(long cells, int levels, long nanos) {
+        this.cells = cells;
+        this.levels = levels;
+        this.nanos = nanos;
+    }
+
+    /**
+     * The number of cells which were evaluated.
+     * @return The number of cells evaluated by the recalculation.
+     */
+    public long getCells() {
+        return cells;
+    }
+
+    /**
+     * The number of levels the cells were divided into,
+     * i.e. the length of the longest chain of references plus one.
+     * The cells of each level were evaluated concurrently.
+     * @return The number of levels evaluated one after another.
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * The time taken to recalculate the sheet, including building the dependency graph.
+     * @return The duration of the recalculation in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * The rate at which cells were recalculated.
+     * @return The number of cells evaluated per second.
+     */
+    public double getCellsPerSecond() {
+        return cells / (Math.max(nanos, 1) / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d cells in %d levels, %.0f cells/s", cells, levels, getCellsPerSecond());
+    }
+}
@@ -2,14 +2,31 @@ package sheep.sheets;
 
 import sheep.core.SheetUpdate;
 import sheep.core.SheetView;
+import sheep.core.UpdateBatch;
 import sheep.core.UpdateResponse;
 import sheep.core.ViewElement;
+import sheep.expression.CompiledExpression;
 import sheep.expression.Expression;
+import sheep.expression.Scope;
 import sheep.expression.TypeError;
 import sheep.parsing.ParseException;
 import sheep.parsing.Parser;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Spreadsheet that evaluates its expressions and updates dependant cells.
@@ -19,17 +36,72 @@ import java.util.*;
  * Each cell location of a spreadsheet has a formula and a value.
  * The formula is what has been written in the cell by a user
  * whereas the value is what value the cell contains.
+ * <p>
+ * A sheet may be read and edited from several threads.
+ * Edits take a write lock and are applied one at a time.
+ * Only a sheet whose cells keep earlier versions, such as a {@link GameSheet}
+ * or a sheet built with {@link SheetBuilder#persistentStorage()}, publishes each
+ * completed edit so that its formulas, values, dimensions and snapshots are read
+ * without locking. Reads of any other sheet take a read lock and wait for an edit
+ * in progress, as do {@link #contains(CellLocation)}, {@link #usedBy(CellLocation)}
+ * and {@link #getEvaluationCount()} for every sheet.
  * @stage2
  */
 public class Sheet implements SheetView, SheetUpdate {
+    /** The number of bytes encoded at once when writing to a channel. */
+    private static final int CSV_BUFFER_SIZE = 1 << 16;
+    /** The number of earlier revisions a sheet remembers for undo. */
+    private static final int UNDO_LEVELS = 256;
+    /** The fewest affected cells for which an update is recalculated in parallel. */
+    private static final int PARALLEL_THRESHOLD = 512;
+    /** The most cells of a level evaluated by a single parallel task. */
+    private static final int LEVEL_SPLIT = 64;
 
-    private final Map<CellLocation, Expression> formulas = new HashMap<>();
-    private final Map<CellLocation, Expression> values = new HashMap<>();
-    private final Map<CellLocation, Set<CellLocation>> usages = new HashMap<>();
+    private final CellStore cells;
     private final Map<String, Expression> builtins;
     private final Expression defaultExpression;
     private int rows;
     private int columns;
+    private long evaluations = 0;
+    private EditJournal journal = null;
+
+    /**
+     * The state of the sheet after an edit.
+     */
+    private record Revision(PersistentCellStore.Version cells, int rows, int columns) {
+    }
+
+    /** The cells of the sheet if they keep earlier versions, otherwise null. */
+    private final PersistentCellStore versions;
+    private final Deque<Revision> undos = new ArrayDeque<>();
+    private final Deque<Revision> redos = new ArrayDeque<>();
+    private Revision revision;
+
+    /**
+     * The state of the sheet published after an edit.
+     * The cells of a view are never written, so it may be read without locking.
+     */
+    private record View(long version, int rows, int columns, PersistentCellStore.Version cells) {
+    }
+
+    /** Serialises edits of the sheet, and reads of sheets which do not publish a view. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** The view published after the latest edit, or null if the cells are not persistent. */
+    private volatile View published = null;
+    private long version = 0;
+    /** Whether the edit in progress has changed the sheet, so it is published once the outermost edit ends. */
+    private boolean changed = false;
+    /** Whether edits are remembered for undo, false while applying {@link #untracked(Runnable)} edits. */
+    private boolean tracked = true;
+
+    /** The pool used to recalculate large updates in parallel, or null to always recalculate sequentially. */
+    private ForkJoinPool recalculationPool = null;
+
+    /**
+     * The cells which transitively use each cell, as computed by {@link #usedBy(CellLocation)}.
+     * Entries are added by concurrent readers and removed by edits which change the usages they cover.
+     */
+    private final Map<CellLocation, CellSet> closures = new ConcurrentHashMap<>();
 
     private final Parser parser;
 
@@ -48,12 +120,39 @@ public class Sheet implements SheetView, SheetUpdate {
      */
     protected Sheet(Parser parser, Map<String, Expression> builtins,
           Expression defaultExpression, int rows, int columns) {
+        this(parser, builtins, defaultExpression, rows, columns, new HashCellStore());
+    }
+
+    /**
+     * Construct a new instance of the sheet class which stores its cells in the given store.
+     * <p>
+     * Cells which have not been written resolve to the defaultExpression
+     * without being stored.
+     *
+     * @param parser The parser instance used to create expressions.
+     * @param builtins A mapping of built-in identifiers to expressions.
+     * @param defaultExpression The default expression to load in every cell.
+     * @param rows Amount of rows for the new sheet.
+     * @param columns Amount of columns for the new sheet.
+     * @param cells An empty cell store to hold the cells of the sheet.
+     * @requires rows &gt; 0
+     * @requires columns &gt; 0 &amp;&amp; columns &lt; 26
+     */
+    Sheet(Parser parser, Map<String, Expression> builtins,
+          Expression defaultExpression, int rows, int columns, CellStore cells) {
+        this.cells = cells;
         this.parser = parser;
         this.rows = rows;
         this.columns = columns;
         this.defaultExpression = defaultExpression;
         this.builtins = new HashMap<>(builtins);
-        this.populate();
+        if (cells instanceof PersistentCellStore persistent) {
+            this.versions = persistent;
+            this.revision = new Revision(persistent.version(), rows, columns);
+            this.published = new View(version, rows, columns, revision.cells());
+        } else {
+            this.versions = null;
+        }
     }
 
     /**
@@ -61,22 +160,37 @@ public class Sheet implements SheetView, SheetUpdate {
      * formula in every cell.
      */
     public void clear() {
-        populate();
-    }
-
-    private void populate() {
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                CellLocation location = new CellLocation(i, j);
-                populate(location);
+        beginEdit();
+        try {
+            cells.clear();
+            closures.clear();
+            if (journal != null) {
+                journal.recordClear();
             }
+            changed = true;
+        } finally {
+            endEdit();
         }
     }
 
-    private void populate(CellLocation location) {
-        values.put(location, defaultExpression);
-        formulas.put(location, defaultExpression);
-        usages.put(location, new HashSet<>());
+    /**
+     * Record every later update, clear, and resize of the sheet in the journal.
+     * <p>
+     * The records of an edit are written once the edit is complete and the sheet is unlocked.
+     * If they cannot be written the edit still applies, and the edit throws an
+     * {@link UncheckedIOException}, or fails with "Unable to write journal: [reason]"
+     * for {@link #update(int, int, String)} and {@link #updateAll(UpdateBatch)}.
+     *
+     * @param journal The journal to record edits in, or null to stop journaling.
+     * @see EditJournal#recover(Sheet)
+     */
+    void setJournal(EditJournal journal) {
+        lock.writeLock().lock();
+        try {
+            this.journal = journal;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -84,23 +198,25 @@ public class Sheet implements SheetView, SheetUpdate {
      * If the spreadsheet shrinks, the values of removed cells are remembered
      * and may be accessed if the spreadsheet grows again.
      * If the spreadsheet grows, the default values are populated.
+     * <p>
+     * Cells which have not been written are never stored,
+     * so resizing does not depend on the size of the spreadsheet.
      *
      * @param rows New number of rows.
      * @param columns New number of columns.
      */
     public void updateDimensions(int rows, int columns) {
-        for (int newRow = 0; newRow < rows - this.rows; newRow++) {
-            for (int column = 0; column < columns; column++) {
-                populate(new CellLocation(newRow + this.rows, column));
-            }
-        }
-        for (int newCol = 0; newCol < columns - this.columns; newCol++) {
-            for (int row = 0; row < columns; row++) {
-                populate(new CellLocation(row, newCol + this.columns));
+        beginEdit();
+        try {
+            this.rows = rows;
+            this.columns = columns;
+            if (journal != null) {
+                journal.recordDimensions(rows, columns);
             }
+            changed = true;
+        } finally {
+            endEdit();
         }
-        this.rows = rows;
-        this.columns = columns;
     }
 
     /**
@@ -109,7 +225,8 @@ public class Sheet implements SheetView, SheetUpdate {
      */
     @Override
     public int getRows() {
-        return rows;
+        View view = view();
+        return view != null ? view.rows() : read(() -> rows);
     }
 
     /**
@@ -118,7 +235,8 @@ public class Sheet implements SheetView, SheetUpdate {
      */
     @Override
     public int getColumns() {
-        return columns;
+        View view = view();
+        return view != null ? view.columns() : read(() -> columns);
     }
 
     /**
@@ -128,9 +246,17 @@ public class Sheet implements SheetView, SheetUpdate {
      * @return true if the cell location is within the sheet bounds.
      */
     public boolean contains(CellLocation location) {
+        View view = view();
+        if (view != null) {
+            return inBounds(location, view.rows(), view.columns());
+        }
+        return read(() -> inBounds(location, rows, columns));
+    }
+
+    private static boolean inBounds(CellLocation location, int rows, int columns) {
         if (location.getRow() >= 0 && location.getColumn() >= 0) {
-            return location.getColumn() < getColumns()
-                    && location.getRow() < getRows();
+            return location.getColumn() < columns
+                    && location.getRow() < rows;
         }
         return false;
     }
@@ -148,7 +274,7 @@ public class Sheet implements SheetView, SheetUpdate {
      */
     @Override
     public ViewElement valueAt(int row, int column) {
-        return new ViewElement(valueAt(new CellLocation(row, column)).render(), "white", "black");
+        return new ViewElement(valueAt(CellLocation.of(row, column)).render(), "white", "black");
     }
 
     /**
@@ -164,7 +290,7 @@ public class Sheet implements SheetView, SheetUpdate {
      */
     @Override
     public ViewElement formulaAt(int row, int column) {
-        return new ViewElement(formulaAt(new CellLocation(row, column)).render(), "white", "black");
+        return new ViewElement(formulaAt(CellLocation.of(row, column)).render(), "white", "black");
     }
 
     /**
@@ -179,6 +305,9 @@ public class Sheet implements SheetView, SheetUpdate {
      * If a {@link TypeError} occurs,
      * then the update response must fail with "Type error: [e]"
      * where e is the result of calling {@link TypeError#toString()} on the thrown exception.
+     * If the input would introduce a reference loop,
+     * then the update response must fail with "Circular reference: [path]"
+     * where path is the loop of cells, e.g. "A0 -> A1 -> A0".
      * <p>
      * Otherwise, the spreadsheet should update as per {@link #update(CellLocation, Expression)}
      * and return a successful {@link UpdateResponse}.
@@ -192,12 +321,53 @@ public class Sheet implements SheetView, SheetUpdate {
     public UpdateResponse update(int row, int column, String input) {
         try {
             Expression expr = parser.parse(input);
-            update(new CellLocation(row, column), expr);
+            update(CellLocation.of(row, column), expr);
             return UpdateResponse.success();
+        } catch (CircularReference e) {
+            return UpdateResponse.fail("Circular reference: " + e.getMessage());
         } catch (TypeError e) {
             return UpdateResponse.fail("Type error: " + e);
         } catch (ParseException e) {
             return UpdateResponse.fail("Unable to parse: " + input);
+        } catch (UncheckedIOException e) {
+            return UpdateResponse.fail("Unable to write journal: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Attempt to update many cells within the sheet at once.
+     * <p>
+     * Every input is parsed before the sheet is modified.
+     * If any input cannot be parsed,
+     * then the update response must fail with "Unable to parse: [input]"
+     * for the first such input and the sheet is left unchanged.
+     * <p>
+     * Once parsed, the method should function the same as {@link #update(Map)},
+     * failing with the same messages as {@link #update(int, int, String)}.
+     *
+     * @param batch The updates to apply.
+     * @return Information about the status of performing the updates.
+     */
+    @Override
+    public UpdateResponse updateAll(UpdateBatch batch) {
+        Map<CellLocation, Expression> updates = new LinkedHashMap<>();
+        for (UpdateBatch.Entry entry : batch.entries()) {
+            try {
+                updates.put(CellLocation.of(entry.getRow(), entry.getColumn()),
+                        parser.parse(entry.getInput()));
+            } catch (ParseException e) {
+                return UpdateResponse.fail("Unable to parse: " + entry.getInput());
+            }
+        }
+        try {
+            update(updates);
+            return UpdateResponse.success();
+        } catch (CircularReference e) {
+            return UpdateResponse.fail("Circular reference: " + e.getMessage());
+        } catch (TypeError e) {
+            return UpdateResponse.fail("Type error: " + e);
+        } catch (UncheckedIOException e) {
+            return UpdateResponse.fail("Unable to write journal: " + e.getCause().getMessage());
         }
     }
 
@@ -208,7 +378,11 @@ public class Sheet implements SheetView, SheetUpdate {
      * @return The formula expression at the given cell location.
      */
     public Expression formulaAt(CellLocation location) {
-        return formulas.get(location);
+        View view = view();
+        if (view != null) {
+            return formulaAt(view, location);
+        }
+        return read(() -> cellFormula(location));
     }
 
     /**
@@ -223,7 +397,78 @@ public class Sheet implements SheetView, SheetUpdate {
      * @return The value expression at the given cell location.
      */
     public Expression valueAt(CellLocation location) {
-        return values.get(location);
+        View view = view();
+        if (view != null) {
+            return valueAt(view, location);
+        }
+        return read(() -> cellValue(location));
+    }
+
+    private Expression formulaAt(View view, CellLocation location) {
+        Expression formula = view.cells().formulaAt(location);
+        if (formula == null && inBounds(location, view.rows(), view.columns())) {
+            return defaultExpression;
+        }
+        return formula;
+    }
+
+    private Expression valueAt(View view, CellLocation location) {
+        Expression value = view.cells().valueAt(location);
+        if (value == null && inBounds(location, view.rows(), view.columns())) {
+            return defaultExpression;
+        }
+        return value;
+    }
+
+    /**
+     * The formula currently stored at the location, as seen by an edit of the sheet.
+     */
+    private Expression cellFormula(CellLocation location) {
+        Expression formula = cells.formulaAt(location);
+        if (formula == null && inBounds(location, rows, columns)) {
+            return defaultExpression;
+        }
+        return formula;
+    }
+
+    /**
+     * The value currently stored at the location, as seen by an edit of the sheet.
+     */
+    private Expression cellValue(CellLocation location) {
+        Expression value = cells.valueAt(location);
+        if (value == null && inBounds(location, rows, columns)) {
+            return defaultExpression;
+        }
+        return value;
+    }
+
+    /**
+     * Whether the location is a cell of this sheet,
+     * either within the bounds or remembered from before the sheet shrunk.
+     */
+    private boolean isCell(CellLocation location) {
+        return inBounds(location, rows, columns) || cells.holds(location);
+    }
+
+    /**
+     * The view to read the sheet through, or null if the sheet must be read under the lock.
+     * A thread which is editing the sheet reads its own edits rather than the published view.
+     */
+    private View view() {
+        return lock.isWriteLockedByCurrentThread() ? null : published;
+    }
+
+    /**
+     * Read the sheet while no edit is in progress.
+     * Used by sheets which do not publish a view.
+     */
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -253,30 +498,153 @@ public class Sheet implements SheetView, SheetUpdate {
      * @see Expression#dependencies()
      * @param location A cell location within the spreadsheet.
      * @requires location is within the bounds (row/columns) of the spreadsheet.
-     * @return All the cells which use the given cell as a dependency.
+     * @return All the cells which use the given cell as a dependency,
+     *         as a set which cannot be modified.
      */
     public Set<CellLocation> usedBy(CellLocation location) {
-        Set<CellLocation> usages = new HashSet<>();
-        usedBy(location, usages);
-        return usages;
+        return read(() -> {
+            CellSet cached = closures.get(location);
+            if (cached != null) {
+                return cached;
+            }
+            CellSet usages = closure(location);
+            closures.put(location, usages);
+            return usages;
+        });
     }
 
-    private void usedBy(CellLocation location, Set<CellLocation> seen) {
-        for (CellLocation next : usages.get(location)) {
-            if (seen.contains(next)) {
-                return;
+    /**
+     * Search the usages breadth-first from the location,
+     * taking the cached closure of a usage rather than searching it again.
+     */
+    private CellSet closure(CellLocation location) {
+        CellSet.Builder seen = new CellSet.Builder();
+        Deque<CellLocation> pending = new ArrayDeque<>();
+        pending.add(location);
+        while (!pending.isEmpty()) {
+            for (CellLocation next : cells.usagesOf(pending.remove())) {
+                if (!seen.add(CellSet.key(next))) {
+                    continue;
+                }
+                CellSet cached = closures.get(next);
+                if (cached == null) {
+                    pending.add(next);
+                    continue;
+                }
+                for (int key : cached.keys()) {
+                    seen.add(key);
+                }
             }
-            seen.add(next);
-            usedBy(next, seen);
         }
+        return seen.build();
     }
 
-    private Map<String, Expression> createState() {
-        Map<String, Expression> symbols = new HashMap<>(builtins);
-        for (CellLocation location : formulas.keySet()) {
-            symbols.put(location.toString(), values.get(location));
+    /**
+     * Forget the cached closures which may change when the usages of the given cells change,
+     * that is the closures of the cells themselves and of any cell they are used by.
+     */
+    private void invalidateClosures(Set<CellLocation> changed) {
+        if (changed.isEmpty() || closures.isEmpty()) {
+            return;
+        }
+        closures.keySet().removeAll(changed);
+        closures.values().removeIf(closure -> {
+            for (CellLocation location : changed) {
+                if (closure.contains(location)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * A view of the symbols available to expressions while the sheet is updating.
+     * <p>
+     * Rather than copying every cell into a fresh map, lookups are resolved
+     * against the live sheet.
+     * Values computed during an update are held in a pending overlay which shadows
+     * the live values until {@link #commit()} is called, so discarding the state
+     * leaves the sheet untouched.
+     */
+    private class SheetState extends AbstractMap<String, Expression> implements Scope {
+        private final Map<CellLocation, Expression> pending = new HashMap<>();
+
+        /**
+         * Record a newly computed value for a cell without modifying the sheet.
+         */
+        private void assign(CellLocation location, Expression value) {
+            pending.put(location, value);
+        }
+
+        /**
+         * Write all pending values into the sheet.
+         */
+        private void commit() {
+            for (Map.Entry<CellLocation, Expression> entry : pending.entrySet()) {
+                cells.setValue(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private Expression resolve(CellLocation location) {
+            Expression value = pending.get(location);
+            if (value == null) {
+                value = cellValue(location);
+            }
+            return value;
+        }
+
+        @Override
+        public Expression valueAt(CellLocation location) {
+            if (!isCell(location)) {
+                return null;
+            }
+            return resolve(location);
+        }
+
+        @Override
+        public Map<String, Expression> state() {
+            return this;
+        }
+
+        @Override
+        public Expression get(Object key) {
+            if (!(key instanceof String identifier)) {
+                return null;
+            }
+            Optional<CellLocation> reference = CellLocation.maybeReference(identifier);
+            if (reference.isPresent()) {
+                Expression value = resolve(reference.get());
+                if (value != null) {
+                    return value;
+                }
+            }
+            return builtins.get(identifier);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        /**
+         * A full snapshot of the state, only built if an expression
+         * needs to iterate over every symbol.
+         */
+        @Override
+        public Set<Entry<String, Expression>> entrySet() {
+            Map<String, Expression> symbols = new HashMap<>(builtins);
+            for (CellLocation location : cells.locations()) {
+                symbols.put(location.toString(), resolve(location));
+            }
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    CellLocation location = CellLocation.of(row, column);
+                    symbols.put(location.toString(), resolve(location));
+                }
+            }
+            return Collections.unmodifiableMap(symbols).entrySet();
         }
-        return symbols;
     }
 
     /**
@@ -297,57 +665,872 @@ public class Sheet implements SheetView, SheetUpdate {
      * If a {@link TypeError} is thrown at any point during the update of this cell or any dependant cells,
      * the sheet should return to the same state as before this method was called.
      * <p>
-     * The behaviour of inserting a reference loop into the sheet,
+     * Only the given cell and the cells which transitively use it are re-evaluated,
+     * so the cost of an update is proportional to the number of affected cells
+     * rather than the size of the sheet.
+     * <p>
+     * Inserting a reference loop into the sheet,
      * e.g. A0 refers to A1, A1 refers to A2, A2 refers to A0 or B1 refers to B1,
-     * is unspecified and will not be tested.
+     * is rejected with a {@link CircularReference} before any cell is evaluated,
+     * leaving the sheet unchanged.
      *
      * @param location A cell location to insert the expression into the sheet.
      * @param cell An expression to insert at the given location.
      * @requires location is within the bounds (row/columns) of the spreadsheet.
+     * @throws CircularReference If the expression would introduce a reference loop.
      * @throws TypeError If the evaluation of the inserted cell or any of its usages
      *                  results in a TypeError being thrown.
      */
     public void update(CellLocation location, Expression cell) throws TypeError {
-        Map<String, Expression> state = createState();
-        state.put(location.toString(), cell.value(state));
-        // recursively pre-calculate all the updated values
-        // this approach triggers a TypeError before the state is modified
-        applyUpdate(state, location);
+        beginEdit();
+        try {
+            // reject reference loops before anything is evaluated
+            checkUsage(location, cell);
+
+            SheetState state = new SheetState();
+            state.assign(location, cell.compiled().value(state));
+            evaluations++;
+            // pre-calculate all the updated values in dependency order
+            // this approach triggers a TypeError before the sheet is modified
+            evaluate(state, dirtyOrder(location), this::cellFormula, cells::usagesOf);
+
+            // no type error, update the sheet
+            updateUsage(location, cell);
+            cells.setFormula(location, cell);
+            state.commit();
+            if (journal != null) {
+                journal.recordUpdate(location, cell);
+            }
+            changed = true;
+        } finally {
+            endEdit();
+        }
+    }
+
+    /**
+     * Insert many expressions into the sheet at once, updating the sheet as required.
+     * <p>
+     * After calling this function, the spreadsheet should be the same as if
+     * {@link #update(CellLocation, Expression)} had been called for each location,
+     * except that every cell affected by the updates is evaluated exactly once,
+     * after all the cells it depends upon.
+     * <p>
+     * The updates are applied atomically.
+     * If the updates would introduce a reference loop, or a {@link TypeError} is thrown
+     * while evaluating any cell, the sheet is left unchanged.
+     *
+     * @param updates A mapping of cell locations to the expressions to insert at them.
+     * @requires every location is within the bounds (row/columns) of the spreadsheet.
+     * @throws CircularReference If the expressions would introduce a reference loop.
+     * @throws TypeError If the evaluation of any inserted cell or any of their usages
+     *                  results in a TypeError being thrown.
+     */
+    public void update(Map<CellLocation, Expression> updates) throws TypeError {
+        beginEdit();
+        try {
+            // the usage graph as it will be once every update is applied
+            Map<CellLocation, Set<CellLocation>> references = new HashMap<>();
+            Map<CellLocation, List<CellLocation>> added = new HashMap<>();
+            for (Map.Entry<CellLocation, Expression> update : updates.entrySet()) {
+                Set<CellLocation> refs = references(update.getValue());
+                references.put(update.getKey(), refs);
+                for (CellLocation ref : refs) {
+                    added.computeIfAbsent(ref, k -> new ArrayList<>()).add(update.getKey());
+                }
+            }
+
+            // rejects reference loops before anything is evaluated
+            List<CellLocation> order = dirtyOrder(updates.keySet(), references, added);
+
+            SheetState state = new SheetState();
+            evaluate(state, order, location -> {
+                Expression formula = updates.get(location);
+                return formula == null ? cellFormula(location) : formula;
+            }, location -> usagesAfter(location, references, added));
+
+            // no type error, update the sheet
+            for (Map.Entry<CellLocation, Expression> update : updates.entrySet()) {
+                updateUsage(update.getKey(), update.getValue());
+                cells.setFormula(update.getKey(), update.getValue());
+                if (journal != null) {
+                    journal.recordUpdate(update.getKey(), update.getValue());
+                }
+            }
+            state.commit();
+            changed = true;
+        } finally {
+            endEdit();
+        }
+    }
+
+    /**
+     * The cells which will directly use the location once a batch of updates is applied.
+     * Updated cells only use the cells referred to by their new formula.
+     */
+    private List<CellLocation> usagesAfter(CellLocation location,
+                                           Map<CellLocation, Set<CellLocation>> references,
+                                           Map<CellLocation, List<CellLocation>> added) {
+        List<CellLocation> usages = new ArrayList<>();
+        for (CellLocation usage : cells.usagesOf(location)) {
+            if (!references.containsKey(usage)) {
+                usages.add(usage);
+            }
+        }
+        usages.addAll(added.getOrDefault(location, List.of()));
+        return usages;
+    }
+
+    /**
+     * Find every updated cell and every cell which transitively uses an updated cell,
+     * ordered such that each cell appears after all the cells it depends upon.
+     *
+     * @throws CircularReference If the updated usages contain a reference loop.
+     */
+    private List<CellLocation> dirtyOrder(Collection<CellLocation> updated,
+                                          Map<CellLocation, Set<CellLocation>> references,
+                                          Map<CellLocation, List<CellLocation>> added)
+            throws CircularReference {
+        List<CellLocation> order = new ArrayList<>();
+        Set<CellLocation> visited = new HashSet<>();
+        Deque<CellLocation> path = new ArrayDeque<>();
+        Set<CellLocation> onPath = new HashSet<>();
+        Deque<Iterator<CellLocation>> pending = new ArrayDeque<>();
+        for (CellLocation root : updated) {
+            if (!visited.add(root)) {
+                continue;
+            }
+            path.push(root);
+            onPath.add(root);
+            pending.push(usagesAfter(root, references, added).iterator());
+            while (!pending.isEmpty()) {
+                Iterator<CellLocation> next = pending.peek();
+                if (next.hasNext()) {
+                    CellLocation usage = next.next();
+                    if (onPath.contains(usage)) {
+                        // the usage refers to every cell on the path back to itself
+                        List<CellLocation> cycle = new ArrayList<>();
+                        cycle.add(usage);
+                        for (CellLocation cell : path) {
+                            if (cell.equals(usage)) {
+                                break;
+                            }
+                            cycle.add(cell);
+                        }
+                        cycle.add(usage);
+                        throw new CircularReference(cycle);
+                    }
+                    if (visited.add(usage)) {
+                        path.push(usage);
+                        onPath.add(usage);
+                        pending.push(usagesAfter(usage, references, added).iterator());
+                    }
+                } else {
+                    pending.pop();
+                    CellLocation finished = path.pop();
+                    onPath.remove(finished);
+                    order.add(finished);
+                }
+            }
+        }
+        Collections.reverse(order);
+        return order;
+    }
+
+    /**
+     * Recalculate large updates of the sheet in parallel on the given pool.
+     * <p>
+     * Once an update affects enough cells, the affected cells are divided into
+     * levels such that the cells of a level only depend upon cells of earlier levels,
+     * and the cells of each level are evaluated concurrently.
+     * Smaller updates are recalculated sequentially on the calling thread.
+     *
+     * @param pool The pool to evaluate cells on, or null to always recalculate sequentially.
+     */
+    void setRecalculationPool(ForkJoinPool pool) {
+        lock.writeLock().lock();
+        try {
+            this.recalculationPool = pool;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluate the cells in order, assigning their values to the state.
+     *
+     * @param order The cells to evaluate, each after all the cells it depends upon.
+     * @param formulaOf The formula to evaluate for each cell.
+     * @param usagesOf The cells which directly use each cell.
+     */
+    private void evaluate(SheetState state, List<CellLocation> order,
+                          Function<CellLocation, Expression> formulaOf,
+                          Function<CellLocation, Collection<CellLocation>> usagesOf)
+            throws TypeError {
+        if (recalculationPool == null || order.size() < PARALLEL_THRESHOLD) {
+            for (CellLocation location : order) {
+                state.assign(location, formulaOf.apply(location).compiled().value(state));
+                evaluations++;
+            }
+            return;
+        }
+        for (List<CellLocation> level : levels(order, usagesOf)) {
+            evaluateLevel(recalculationPool, state, level, formulaOf);
+        }
+    }
 
-        // no type error, update the state
-        updateUsage(location, cell);
-        formulas.put(location, cell);
-        for (CellLocation existing : values.keySet()) {
-            if (state.containsKey(existing.toString())) {
-                values.put(existing, state.get(existing.toString()));
+    /**
+     * Divide the ordered cells into levels,
+     * where each cell is one level after the latest level of a cell it uses.
+     */
+    private static List<List<CellLocation>> levels(List<CellLocation> order,
+                                                   Function<CellLocation, Collection<CellLocation>> usagesOf) {
+        Map<CellLocation, Integer> levelOf = new HashMap<>();
+        for (CellLocation location : order) {
+            levelOf.put(location, 0);
+        }
+        List<List<CellLocation>> levels = new ArrayList<>();
+        for (CellLocation location : order) {
+            int level = levelOf.get(location);
+            if (level == levels.size()) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level).add(location);
+            for (CellLocation usage : usagesOf.apply(location)) {
+                Integer usageLevel = levelOf.get(usage);
+                if (usageLevel != null && usageLevel <= level) {
+                    levelOf.put(usage, level + 1);
+                }
             }
         }
+        return levels;
     }
 
-    private void applyUpdate(Map<String, Expression> state, CellLocation location)
+    /**
+     * Evaluate the cells of a level concurrently.
+     * The state is only read while the level is evaluated,
+     * the values are assigned once every cell of the level has been evaluated.
+     */
+    private void evaluateLevel(ForkJoinPool pool, SheetState state, List<CellLocation> level,
+                               Function<CellLocation, Expression> formulaOf)
             throws TypeError {
-        for (CellLocation usage : usages.get(location)) {
-            Expression value = formulas.get(usage).value(state);
-            state.put(usage.toString(), value);
-            applyUpdate(state, usage);
+        CompiledExpression[] formulas = new CompiledExpression[level.size()];
+        for (int i = 0; i < formulas.length; i++) {
+            // compile on this thread so expressions are never compiled concurrently
+            formulas[i] = formulaOf.apply(level.get(i)).compiled();
+        }
+        Expression[] values = new Expression[formulas.length];
+        if (formulas.length <= LEVEL_SPLIT) {
+            for (int i = 0; i < formulas.length; i++) {
+                values[i] = formulas[i].value(state);
+            }
+        } else {
+            LevelTask task = new LevelTask(state, formulas, values, 0, formulas.length);
+            pool.invoke(task);
+            if (task.error != null) {
+                throw task.error;
+            }
+        }
+        for (int i = 0; i < values.length; i++) {
+            state.assign(level.get(i), values[i]);
+        }
+        evaluations += values.length;
+    }
+
+    /**
+     * Evaluate the formula of every cell held by the sheet, as when a sheet is first opened.
+     * <p>
+     * Rather than following the usages of each cell, the dependency graph of the whole sheet
+     * is built once from the {@link Expression#cellDependencies()} of every formula.
+     * Cells are then evaluated in waves: each wave holds every cell whose dependencies
+     * have all been evaluated, and the cells of a wave are evaluated concurrently
+     * on the recalculation pool of the sheet, or the common pool if it has none.
+     * <p>
+     * If a {@link TypeError} is thrown while evaluating any cell, the sheet is left unchanged.
+     *
+     * @return How many cells were evaluated, and how quickly.
+     * @throws CircularReference If the formulas of the sheet contain a reference loop.
+     * @throws TypeError If the evaluation of any cell results in a TypeError being thrown.
+     */
+    public Recalculation recalculateAll() throws TypeError {
+        beginEdit();
+        try {
+            long start = System.nanoTime();
+            List<CellLocation> held = new ArrayList<>();
+            for (CellLocation location : cells.locations()) {
+                held.add(location);
+            }
+            Map<CellLocation, Integer> index = new HashMap<>();
+            for (int i = 0; i < held.size(); i++) {
+                index.put(held.get(i), i);
+            }
+
+            // the number of unevaluated dependencies of each cell, and the cells using each cell
+            int[] waiting = new int[held.size()];
+            int[][] dependencies = new int[held.size()][];
+            List<List<Integer>> usages = new ArrayList<>(held.size());
+            for (int i = 0; i < held.size(); i++) {
+                usages.add(new ArrayList<>(0));
+            }
+            for (int i = 0; i < held.size(); i++) {
+                Set<CellLocation> refs = references(cells.formulaAt(held.get(i)));
+                int[] dependsOn = new int[refs.size()];
+                int count = 0;
+                for (CellLocation ref : refs) {
+                    Integer dependency = index.get(ref);
+                    if (dependency != null) {
+                        dependsOn[count++] = dependency;
+                        usages.get(dependency).add(i);
+                    }
+                }
+                dependencies[i] = Arrays.copyOf(dependsOn, count);
+                waiting[i] = count;
+            }
+
+            List<Integer> wave = new ArrayList<>();
+            for (int i = 0; i < held.size(); i++) {
+                if (waiting[i] == 0) {
+                    wave.add(i);
+                }
+            }
+            ForkJoinPool pool = recalculationPool != null ? recalculationPool : ForkJoinPool.commonPool();
+            SheetState state = new SheetState();
+            long evaluated = 0;
+            int waves = 0;
+            while (!wave.isEmpty()) {
+                List<CellLocation> level = new ArrayList<>(wave.size());
+                for (int i : wave) {
+                    level.add(held.get(i));
+                }
+                evaluateLevel(pool, state, level, this::cellFormula);
+                evaluated += level.size();
+                waves++;
+
+                List<Integer> next = new ArrayList<>();
+                for (int i : wave) {
+                    for (int usage : usages.get(i)) {
+                        if (--waiting[usage] == 0) {
+                            next.add(usage);
+                        }
+                    }
+                }
+                wave = next;
+            }
+
+            if (evaluated < held.size()) {
+                throw new CircularReference(findLoop(held, dependencies, waiting));
+            }
+            state.commit();
+            changed = true;
+            return new Recalculation(evaluated, waves, System.nanoTime() - start);
+        } finally {
+            endEdit();
+        }
+    }
+
+    /**
+     * Find a reference loop among the cells which could not be evaluated.
+     * Every such cell has a dependency which could not be evaluated,
+     * so following those dependencies must eventually revisit a cell.
+     */
+    private static List<CellLocation> findLoop(List<CellLocation> held, int[][] dependencies,
+                                               int[] waiting) {
+        int current = 0;
+        while (waiting[current] == 0) {
+            current++;
+        }
+        Map<Integer, Integer> step = new HashMap<>();
+        List<Integer> path = new ArrayList<>();
+        while (!step.containsKey(current)) {
+            step.put(current, path.size());
+            path.add(current);
+            for (int dependency : dependencies[current]) {
+                if (waiting[dependency] > 0) {
+                    current = dependency;
+                    break;
+                }
+            }
+        }
+        List<CellLocation> loop = new ArrayList<>();
+        for (int i = step.get(current); i < path.size(); i++) {
+            loop.add(held.get(path.get(i)));
+        }
+        loop.add(held.get(current));
+        return loop;
+    }
+
+    /**
+     * Evaluates a range of the cells of a level, splitting large ranges between workers.
+     */
+    private static class LevelTask extends RecursiveAction {
+        private final SheetState state;
+        private final CompiledExpression[] formulas;
+        private final Expression[] values;
+        private final int start;
+        private final int end;
+        /** The first type error thrown within this range, if any. */
+        private TypeError error;
+
+        private LevelTask(SheetState state, CompiledExpression[] formulas, Expression[] values,
+                          int start, int end) {
+            this.state = state;
+            this.formulas = formulas;
+            this.values = values;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEVEL_SPLIT) {
+                try {
+                    for (int i = start; i < end; i++) {
+                        values[i] = formulas[i].value(state);
+                    }
+                } catch (TypeError e) {
+                    error = e;
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            LevelTask left = new LevelTask(state, formulas, values, start, middle);
+            LevelTask right = new LevelTask(state, formulas, values, middle, end);
+            invokeAll(left, right);
+            error = left.error != null ? left.error : right.error;
+        }
+    }
+
+    /**
+     * Find every cell which transitively uses the given location,
+     * ordered such that each cell appears after all the cells it depends upon.
+     * <p>
+     * The order is the reverse post-order of a depth-first search over the usages,
+     * so every affected cell appears exactly once regardless of how many
+     * paths lead to it.
+     */
+    private List<CellLocation> dirtyOrder(CellLocation location) {
+        List<CellLocation> order = new ArrayList<>();
+        Set<CellLocation> visited = new HashSet<>();
+        visited.add(location);
+
+        // iterative search so long chains of references cannot overflow the stack
+        Deque<CellLocation> path = new ArrayDeque<>();
+        Deque<Iterator<CellLocation>> pending = new ArrayDeque<>();
+        pending.push(cells.usagesOf(location).iterator());
+        while (!pending.isEmpty()) {
+            Iterator<CellLocation> next = pending.peek();
+            if (next.hasNext()) {
+                CellLocation usage = next.next();
+                if (visited.add(usage)) {
+                    path.push(usage);
+                    pending.push(cells.usagesOf(usage).iterator());
+                }
+            } else {
+                pending.pop();
+                if (!path.isEmpty()) {
+                    order.add(path.pop());
+                }
+            }
+        }
+        Collections.reverse(order);
+        return order;
+    }
+
+    /**
+     * The total number of formula evaluations performed by updates to this sheet.
+     * <p>
+     * Each update evaluates the updated cell and every cell which transitively
+     * uses it exactly once, so the count increases by one plus the size of
+     * {@link #usedBy(CellLocation)} for each update.
+     *
+     * @return The number of formula evaluations performed so far.
+     */
+    public long getEvaluationCount() {
+        return read(() -> evaluations);
+    }
+
+    /**
+     * The cells within the sheet referred to directly by the expression.
+     */
+    private Set<CellLocation> references(Expression expression) {
+        Set<CellLocation> references = new HashSet<>();
+        for (CellLocation ref : expression.cellDependencies()) {
+            if (isCell(ref)) {
+                references.add(ref);
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Ensure that storing the expression at the location would not close a reference loop.
+     * <p>
+     * A loop exists if the expression refers to the location itself or to any cell which
+     * transitively uses the location, so only the cells affected by the update are searched.
+     *
+     * @throws CircularReference If the expression would introduce a reference loop.
+     */
+    private void checkUsage(CellLocation location, Expression newExpression)
+            throws CircularReference {
+        Set<CellLocation> references = references(newExpression);
+        if (references.isEmpty()) {
+            return;
+        }
+
+        // breadth-first search over the usages, remembering how each cell was reached
+        Map<CellLocation, CellLocation> reachedFrom = new HashMap<>();
+        Deque<CellLocation> pending = new ArrayDeque<>();
+        reachedFrom.put(location, location);
+        pending.add(location);
+        while (!pending.isEmpty()) {
+            CellLocation current = pending.remove();
+            if (references.contains(current)) {
+                // walk back along the usages to build the loop in reference order
+                List<CellLocation> cycle = new ArrayList<>();
+                cycle.add(location);
+                while (!current.equals(location)) {
+                    cycle.add(current);
+                    current = reachedFrom.get(current);
+                }
+                cycle.add(location);
+                throw new CircularReference(cycle);
+            }
+            for (CellLocation usage : cells.usagesOf(current)) {
+                if (!reachedFrom.containsKey(usage)) {
+                    reachedFrom.put(usage, current);
+                    pending.add(usage);
+                }
+            }
         }
     }
 
     private void updateUsage(CellLocation location, Expression newExpression) {
+        Set<CellLocation> oldRefs = new HashSet<>(cells.referencesOf(location));
+        Set<CellLocation> newRefs = references(newExpression);
+
         // remove all usages of old formula
-        Expression oldExpression = formulas.get(location);
-        for (String oldDep : oldExpression.dependencies()) {
-            Optional<CellLocation> ref = CellLocation.maybeReference(oldDep);
-            if (ref.isPresent()) {
-                usages.get(ref.get()).remove(location);
-            }
+        for (CellLocation oldRef : oldRefs) {
+            cells.removeUsage(oldRef, location);
         }
 
         // insert all new usages
-        for (String dep : newExpression.dependencies()) {
-            Optional<CellLocation> ref = CellLocation.maybeReference(dep);
-            if (ref.isPresent()) {
-                usages.get(ref.get()).add(location);
+        for (CellLocation ref : newRefs) {
+            cells.addUsage(ref, location);
+        }
+
+        // only cells which gained or lost a usage have a different closure
+        Set<CellLocation> changed = new HashSet<>(oldRefs);
+        changed.addAll(newRefs);
+        oldRefs.retainAll(newRefs);
+        changed.removeAll(oldRefs);
+        invalidateClosures(changed);
+    }
+
+    /**
+     * Resize the sheet and install saved cells without re-evaluating them.
+     * <p>
+     * Each formula is stored along with its saved value,
+     * which is trusted to be the result of evaluating the formula,
+     * so loading a sheet does not depend on the length of its dependency chains.
+     * Only cells without a saved value are dirty,
+     * these cells and the cells which use them are evaluated once all cells are installed.
+     * If evaluating the dirty cells results in a {@link TypeError},
+     * they are given the default expression as their value.
+     * If no values were saved for a large sheet, it is evaluated as per {@link #recalculateAll()}.
+     * <p>
+     * The cells are restored as a single edit of the sheet.
+     *
+     * @param rows The new number of rows.
+     * @param columns The new number of columns.
+     * @param formulas A mapping of cell locations to their saved formulas.
+     * @param values A mapping of cell locations to their saved values.
+     * @requires every location is within the new bounds of the spreadsheet.
+     * @requires every location in values is also in formulas.
+     * @requires the formulas do not contain a reference loop.
+     */
+    public void restoreCells(int rows, int columns, Map<CellLocation, Expression> formulas,
+                             Map<CellLocation, Expression> values) {
+        beginEdit();
+        try {
+            updateDimensions(rows, columns);
+            Map<CellLocation, Expression> dirty = new HashMap<>();
+            for (Map.Entry<CellLocation, Expression> formula : formulas.entrySet()) {
+                CellLocation location = formula.getKey();
+                updateUsage(location, formula.getValue());
+                cells.setFormula(location, formula.getValue());
+                Expression value = values.get(location);
+                if (value == null) {
+                    dirty.put(location, formula.getValue());
+                    value = defaultExpression;
+                } else if (journal != null) {
+                    // dirty cells are recorded when they are recalculated below
+                    journal.recordUpdate(location, formula.getValue());
+                }
+                cells.setValue(location, value);
+            }
+
+            if (dirty.size() >= PARALLEL_THRESHOLD && dirty.size() == formulas.size()) {
+                // no values were saved, so recalculate the sheet as a whole
+                try {
+                    recalculateAll();
+                } catch (TypeError e) {
+                    // leave the dirty cells with the default value
+                }
+                if (journal != null) {
+                    for (Map.Entry<CellLocation, Expression> formula : dirty.entrySet()) {
+                        journal.recordUpdate(formula.getKey(), formula.getValue());
+                    }
+                }
+            } else if (!dirty.isEmpty()) {
+                try {
+                    update(dirty);
+                } catch (TypeError e) {
+                    // leave the dirty cells with the default value
+                    if (journal != null) {
+                        for (Map.Entry<CellLocation, Expression> formula : dirty.entrySet()) {
+                            journal.recordUpdate(formula.getKey(), formula.getValue());
+                        }
+                    }
+                }
+            }
+            changed = true;
+        } finally {
+            endEdit();
+        }
+    }
+
+    /**
+     * Apply several edits of the sheet as a single edit.
+     * <p>
+     * The edits are made while holding the sheet, so other threads never see the sheet
+     * part way through them, while the edits themselves read the sheet as they leave it.
+     * The sheet is published once they complete as one version,
+     * which is undone as a single revision.
+     * For instance, a file is loaded by clearing, resizing and filling the sheet within one edit.
+     * Edits which throw leave any earlier edits within the group applied.
+     *
+     * @param edits The edits to apply, by calling the methods of this sheet.
+     */
+    public void edit(Runnable edits) {
+        beginEdit();
+        try {
+            edits.run();
+        } finally {
+            endEdit();
+        }
+    }
+
+    /**
+     * Apply several edits of the sheet as a single edit, as per {@link #edit(Runnable)},
+     * which is not remembered for undo, such as the moves a game makes on each tick.
+     * <p>
+     * Undoing a later edit returns the whole sheet to its state before that edit,
+     * including any untracked edits made before it.
+     * Untracked edits made within another edit are part of that edit.
+     *
+     * @param edits The edits to apply, by calling the methods of this sheet.
+     */
+    public void untracked(Runnable edits) {
+        beginEdit();
+        boolean wasTracked = tracked;
+        if (lock.getWriteHoldCount() == 1) {
+            tracked = false;
+        }
+        EditJournal flushed = null;
+        try {
+            edits.run();
+        } finally {
+            try {
+                publishEdit();
+                flushed = outermostJournal();
+            } finally {
+                tracked = wasTracked;
+                lock.writeLock().unlock();
+            }
+        }
+        flush(flushed);
+    }
+
+    /**
+     * Begin an edit of the sheet, which may be nested within another edit.
+     */
+    private void beginEdit() {
+        lock.writeLock().lock();
+    }
+
+    /**
+     * End an edit of the sheet.
+     * Once the outermost edit ends, any change it made is published as a single edit.
+     */
+    private void endEdit() {
+        EditJournal flushed;
+        try {
+            publishEdit();
+            flushed = outermostJournal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flush(flushed);
+    }
+
+    /**
+     * The journal to flush once the lock is released, if the outermost edit is ending.
+     */
+    private EditJournal outermostJournal() {
+        return lock.getWriteHoldCount() == 1 ? journal : null;
+    }
+
+    /**
+     * Write the records of a completed edit to the journal,
+     * after the sheet is unlocked so that no reader or edit waits for the disk.
+     *
+     * @throws UncheckedIOException If the journal cannot be written,
+     *                              in which case the records stay pending.
+     */
+    private static void flush(EditJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Publish any change made by the edit in progress, if it is the outermost edit.
+     */
+    private void publishEdit() {
+        if (changed && lock.getWriteHoldCount() == 1) {
+            changed = false;
+            edited();
+        }
+    }
+
+    /**
+     * Start a new version of the sheet once an edit is complete.
+     * <p>
+     * If the cells keep earlier versions, the state before the edit is remembered
+     * so that it may be undone, unless the edit is untracked,
+     * and the new state is published to readers.
+     */
+    private void edited() {
+        version++;
+        if (versions == null) {
+            return;
+        }
+        Revision next = new Revision(versions.version(), rows, columns);
+        if (!next.equals(revision)) {
+            if (tracked) {
+                undos.push(revision);
+                if (undos.size() > UNDO_LEVELS) {
+                    undos.removeLast();
+                }
+                redos.clear();
+            }
+            revision = next;
+        }
+        published = new View(version, rows, columns, revision.cells());
+    }
+
+    /**
+     * The version of the sheet, which increases with every edit.
+     * <p>
+     * Reads of a sheet whose cells keep earlier versions, such as a {@link GameSheet},
+     * never wait for an edit in progress; they see the version published by the latest
+     * completed edit, so every read between two edits sees the same version.
+     * Reads of other sheets wait for any edit in progress to complete.
+     *
+     * @return The number of edits which have been applied to the sheet.
+     */
+    public long getVersion() {
+        View view = view();
+        return view != null ? view.version() : read(() -> version);
+    }
+
+    /**
+     * Revert the latest edit of the sheet which has not been undone.
+     * <p>
+     * Each update, clear, resize, and load of the sheet is an edit,
+     * as is each group of edits applied by {@link #edit(Runnable)}.
+     * Edits applied by {@link #untracked(Runnable)} are not remembered.
+     * Only sheets whose cells keep earlier versions, such as a {@link GameSheet},
+     * remember their edits; the most recent edits are remembered.
+     *
+     * @return true if an edit was undone, false if there is no edit to undo.
+     */
+    public boolean undo() {
+        EditJournal flushed;
+        lock.writeLock().lock();
+        try {
+            if (undos.isEmpty()) {
+                return false;
+            }
+            redos.push(revision);
+            restore(undos.pop());
+            flushed = outermostJournal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flush(flushed);
+        return true;
+    }
+
+    /**
+     * Apply the latest edit which was undone, unless the sheet has been edited since.
+     *
+     * @return true if an edit was redone, false if there is no edit to redo.
+     */
+    public boolean redo() {
+        EditJournal flushed;
+        lock.writeLock().lock();
+        try {
+            if (redos.isEmpty()) {
+                return false;
+            }
+            undos.push(revision);
+            restore(redos.pop());
+            flushed = outermostJournal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flush(flushed);
+        return true;
+    }
+
+    /**
+     * Return the sheet to an earlier or later revision.
+     * Only the cells whose formula differs between the revisions have their usages updated.
+     */
+    private void restore(Revision target) {
+        List<CellLocation> changed = versions.changedFormulas(revision.cells(), target.cells());
+        for (CellLocation location : changed) {
+            for (CellLocation ref : new ArrayList<>(cells.referencesOf(location))) {
+                cells.removeUsage(ref, location);
+            }
+        }
+
+        versions.restore(target.cells());
+        closures.clear();
+        rows = target.rows();
+        columns = target.columns();
+        for (CellLocation location : changed) {
+            Expression formula = cells.formulaAt(location);
+            if (formula != null) {
+                for (CellLocation ref : references(formula)) {
+                    cells.addUsage(ref, location);
+                }
+            }
+        }
+        revision = target;
+        version++;
+        published = new View(version, rows, columns, revision.cells());
+
+        if (journal != null) {
+            journal.recordDimensions(rows, columns);
+            for (CellLocation location : changed) {
+                Expression formula = cells.formulaAt(location);
+                journal.recordUpdate(location, formula == null ? defaultExpression : formula);
             }
         }
     }
@@ -381,57 +1564,299 @@ public class Sheet implements SheetView, SheetUpdate {
      * @return The string representation of the current spreadsheet.
      */
     public String encode() {
-        StringJoiner builder = new StringJoiner("\n");
+        return snapshot().encode();
+    }
+
+    /**
+     * Take a snapshot of the formulas and values of every cell within the sheet.
+     * <p>
+     * The snapshot shares the expressions of the sheet rather than rendering them,
+     * so it is cheap to take and may be written out on another thread
+     * while the sheet continues to be updated.
+     * If the cells keep earlier versions, such as those of a {@link GameSheet},
+     * the snapshot shares the published version of the cells and is taken in constant time,
+     * otherwise the expressions of every cell are copied.
+     *
+     * @return An immutable snapshot of the current sheet.
+     */
+    public SheetSnapshot snapshot() {
+        View view = view();
+        if (view == null) {
+            return read(() -> snapshot(rows, columns, this::cellFormula, this::cellValue));
+        }
+        return new SheetSnapshot(view.rows(), view.columns(), view.cells(), defaultExpression);
+    }
+
+    /**
+     * Take a snapshot while no edit is in progress, running the action at the same instant,
+     * such as taking the journal records which the snapshot includes.
+     */
+    SheetSnapshot snapshot(Runnable action) {
+        return read(() -> {
+            action.run();
+            return snapshot();
+        });
+    }
+
+    private static SheetSnapshot snapshot(int rows, int columns,
+                                          Function<CellLocation, Expression> formulaAt,
+                                          Function<CellLocation, Expression> valueAt) {
+        Expression[] formulas = new Expression[rows * columns];
+        Expression[] values = new Expression[rows * columns];
         for (int row = 0; row < rows; row++) {
-            StringJoiner rowEncoding = new StringJoiner("|");
             for (int column = 0; column < columns; column++) {
-                rowEncoding.add(formulas.get(new CellLocation(row, column)).render());
+                CellLocation location = CellLocation.of(row, column);
+                formulas[row * columns + column] = formulaAt.apply(location);
+                values[row * columns + column] = valueAt.apply(location);
             }
-            builder.add(rowEncoding.toString());
         }
-        return builder.toString();
+        return new SheetSnapshot(rows, columns, formulas, values);
     }
 
+    /**
+     * The values of the spreadsheet as comma separated text,
+     * where each line of the text is a row of the sheet.
+     *
+     * @return The comma separated values of the sheet.
+     * @see #writeCSV(Writer)
+     */
     public String toCSV() {
-        StringBuilder csvBuilder = new StringBuilder();
-
-        for (int row = 0; row < getRows(); row++) {
-            for (int col = 0; col < getColumns(); col++) {
-                ViewElement viewElement = valueAt(row, col);
-                String content = viewElement.getContent();
-                csvBuilder.append(content);
+        StringWriter csv = new StringWriter();
+        try {
+            writeCSV(csv);
+        } catch (IOException e) {
+            // writing to a string cannot fail
+            throw new UncheckedIOException(e);
+        }
+        return csv.toString();
+    }
 
-                if (col < getColumns() - 1) {
-                    csvBuilder.append(",");
+    /**
+     * Write the values of the spreadsheet to the writer as comma separated text,
+     * as per {@link #toCSV()}.
+     * <p>
+     * Each cell is written to the writer as it is rendered,
+     * so neither the text nor a copy of the cells of the whole sheet is held in memory.
+     * If the cells keep earlier versions, the values are read from the published version,
+     * so the sheet may be edited while it is written.
+     * Otherwise the values are read under the lock, and edits wait until the sheet is written.
+     * The writer is not buffered or flushed by this method.
+     *
+     * @param writer The writer to write the values to.
+     * @throws IOException If the writer cannot be written to.
+     */
+    public void writeCSV(Writer writer) throws IOException {
+        if (view() != null) {
+            SheetSnapshot snapshot = snapshot();
+            for (int row = 0; row < snapshot.getRows(); row++) {
+                snapshot.writeCSVRow(row, writer);
+            }
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    if (column > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(cellValue(CellLocation.of(row, column)).render());
                 }
+                writer.write(System.lineSeparator());
             }
-            csvBuilder.append(System.lineSeparator());
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        return csvBuilder.toString();
+    /**
+     * Write the values of the spreadsheet to the channel as comma separated text,
+     * as per {@link #toCSV()}.
+     * <p>
+     * Cells are encoded through a single fixed size buffer which is written to the channel
+     * whenever it fills, so the encoded text of the sheet is never held in memory.
+     * The channel is not closed by this method.
+     *
+     * @param channel The channel to write the values to.
+     * @param charset The charset used to encode the values.
+     * @throws IOException If the channel cannot be written to.
+     */
+    public void writeCSV(WritableByteChannel channel, Charset charset) throws IOException {
+        Writer writer = Channels.newWriter(channel, charset.newEncoder(), CSV_BUFFER_SIZE);
+        writeCSV(writer);
+        writer.flush();
     }
 
+    /**
+     * Load cells from comma separated text,
+     * where each line of the text is a row of the sheet.
+     * <p>
+     * The sheet is resized to fit the longest row,
+     * and shorter rows are padded with empty cells.
+     * Cells which cannot be parsed are left unchanged.
+     * The cells are loaded as a single edit of the sheet.
+     *
+     * @param csvData The comma separated cells to load.
+     */
     public void loadFromCSV(String csvData) {
-        String[] rows = csvData.split("\n");
-        int numRows = rows.length;
-        int numCols = 0;
+        CsvLoad load = new CsvLoad();
+        CsvReader reader = new CsvReader(load);
+        reader.read(csvData);
+        reader.finish();
+        load.apply();
+    }
+
+    /**
+     * Load cells from a channel of comma separated text,
+     * as per {@link #loadFromCSV(String)}.
+     * <p>
+     * The channel is read and parsed in fixed size chunks,
+     * so the text of the channel is never held in memory at once.
+     *
+     * @param channel A channel of comma separated cells, read until it is exhausted.
+     * @param charset The charset of the channel's bytes.
+     * @throws IOException If the channel cannot be read.
+     */
+    public void loadFromCSV(ReadableByteChannel channel, Charset charset) throws IOException {
+        CsvLoad load = new CsvLoad();
+        new CsvReader(load).read(channel, charset);
+        load.apply();
+    }
+
+    /**
+     * Replace the contents of the sheet with cells from a channel of comma separated text,
+     * then resize the sheet to the given dimensions, such as those saved with the cells.
+     * <p>
+     * The channel is read as per {@link #loadFromCSV(ReadableByteChannel, Charset)}
+     * before the sheet is modified,
+     * then the sheet is cleared, loaded and resized as a single {@link #edit(Runnable) edit}.
+     *
+     * @param channel A channel of comma separated cells, read until it is exhausted.
+     * @param charset The charset of the channel's bytes.
+     * @param rows The number of rows of the loaded sheet.
+     * @param columns The number of columns of the loaded sheet.
+     * @throws IOException If the channel cannot be read.
+     */
+    public void loadFromCSV(ReadableByteChannel channel, Charset charset, int rows, int columns)
+            throws IOException {
+        CsvLoad load = new CsvLoad();
+        new CsvReader(load).read(channel, charset);
+        edit(() -> {
+            clear();
+            load.apply();
+            updateDimensions(rows, columns);
+        });
+    }
+
+    /**
+     * Collects the parsed cells of a CSV load so that they can be applied
+     * to the sheet as a single batch once every row has been read.
+     */
+    private class CsvLoad implements CsvReader.Handler {
+        private final Map<CellLocation, Expression> updates = new LinkedHashMap<>();
+        private int[] rowLengths = new int[16];
+        private int rows = 0;
+        private int columns = 0;
 
-        // Determine the number of columns by finding the maximum number of columns in any row
-        for (String row : rows) {
-            String[] columns = row.split(",", -1);
-            numCols = Math.max(numCols, columns.length);
+        @Override
+        public void cell(int row, int column, String content) {
+            try {
+                updates.put(CellLocation.of(row, column), parser.parse(content));
+            } catch (ParseException e) {
+                // leave the cell unchanged
+            }
+        }
+
+        @Override
+        public void endRow(int row, int columns) {
+            if (row == rowLengths.length) {
+                rowLengths = Arrays.copyOf(rowLengths, row * 2);
+            }
+            rowLengths[row] = columns;
+            this.rows = row + 1;
+            this.columns = Math.max(this.columns, columns);
         }
 
-        // Update dimensions of the sheet if necessary
-        updateDimensions(numRows, numCols);
+        private void apply() {
+            // pad every row to the longest row
+            for (int row = 0; row < rows; row++) {
+                for (int column = rowLengths[row]; column < columns; column++) {
+                    cell(row, column, "");
+                }
+            }
+            loadCells(rows, columns, updates);
+        }
+    }
 
-        // Populate sheet with CSV data
-        for (int row = 0; row < numRows; row++) {
-            String[] columns = rows[row].split(",", -1); // Split without trimming
-            for (int col = 0; col < numCols; col++) {
-                String cellData = (col < columns.length) ? columns[col] : "";
-                update(row, col, cellData);
+    /**
+     * Install many loaded cells into an empty sheet without evaluating them,
+     * then evaluate them all with {@link #recalculateAll()}.
+     *
+     * @return true if the cells were loaded,
+     *         false if they contain a reference loop or a {@link TypeError} was thrown,
+     *         in which case the sheet is left empty.
+     */
+    private boolean recalculateLoaded(Map<CellLocation, Expression> loaded) {
+        for (Map.Entry<CellLocation, Expression> cell : loaded.entrySet()) {
+            cells.setFormula(cell.getKey(), cell.getValue());
+            cells.setValue(cell.getKey(), defaultExpression);
+        }
+        for (Map.Entry<CellLocation, Expression> cell : loaded.entrySet()) {
+            for (CellLocation ref : references(cell.getValue())) {
+                cells.addUsage(ref, cell.getKey());
+            }
+        }
+        closures.clear();
+        try {
+            recalculateAll();
+        } catch (TypeError e) {
+            cells.clear();
+            closures.clear();
+            return false;
+        }
+        if (journal != null) {
+            for (Map.Entry<CellLocation, Expression> cell : loaded.entrySet()) {
+                journal.recordUpdate(cell.getKey(), cell.getValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resize the sheet and insert many loaded cells at once.
+     * <p>
+     * The cells are inserted as per {@link #update(Map)}, recalculating the sheet once.
+     * Large loads into an empty sheet are recalculated as per {@link #recalculateAll()}.
+     * If the cells cannot be inserted together, e.g. one cell causes a {@link TypeError},
+     * each cell is inserted individually instead, leaving any invalid cells unchanged.
+     * Either way, the cells are loaded as a single edit of the sheet.
+     *
+     * @param rows The new number of rows.
+     * @param columns The new number of columns.
+     * @param cells A mapping of cell locations to the expressions loaded at them.
+     * @requires every location is within the new bounds of the spreadsheet.
+     */
+    public void loadCells(int rows, int columns, Map<CellLocation, Expression> cells) {
+        beginEdit();
+        try {
+            updateDimensions(rows, columns);
+            if (cells.size() >= PARALLEL_THRESHOLD && !this.cells.locations().iterator().hasNext()
+                    && recalculateLoaded(cells)) {
+                return;
+            }
+            try {
+                update(cells);
+            } catch (TypeError e) {
+                for (Map.Entry<CellLocation, Expression> cell : cells.entrySet()) {
+                    try {
+                        update(cell.getKey(), cell.getValue());
+                    } catch (TypeError ignored) {
+                        // leave the cell unchanged
+                    }
+                }
             }
+        } finally {
+            endEdit();
         }
     }
 
@@ -5,6 +5,8 @@ import sheep.parsing.Parser;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
 
 /**
  * Builder pattern to construct {@link Sheet} instances.
@@ -32,6 +34,8 @@ public class SheetBuilder {
     private final Map<String, Expression> builtins = new HashMap<>();
     private final Parser parser;
     private final Expression defaultExpression;
+    private BiFunction<Integer, Integer, CellStore> storage = (rows, columns) -> new HashCellStore();
+    private ForkJoinPool recalculationPool = null;
 
     /**
      * Construct an instance of SheetBuilder than will create
@@ -65,6 +69,93 @@ public class SheetBuilder {
         return this;
     }
 
+    /**
+     * Store the cells of any sheet constructed by this builder instance
+     * in dense row-major arrays rather than hash maps.
+     * <p>
+     * Dense storage uses far less memory per cell and suits sheets
+     * where most cells are within a fixed grid.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .denseStorage()
+     *         .empty(1000, 25);
+     * }</pre>
+     *
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder denseStorage() {
+        this.storage = DenseCellStore::new;
+        return this;
+    }
+
+    /**
+     * Store the cells of any sheet constructed by this builder instance
+     * in tiles which are only allocated when a cell within them is written.
+     * <p>
+     * Sparse storage suits very large sheets where most cells are empty,
+     * as unwritten cells take no memory.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .sparseStorage()
+     *         .empty(1000000, 25);
+     * }</pre>
+     *
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder sparseStorage() {
+        this.storage = (rows, columns) -> new SparseCellStore();
+        return this;
+    }
+
+    /**
+     * Store the cells of any sheet constructed by this builder instance
+     * so that every earlier version is kept, sharing unchanged rows between versions.
+     * <p>
+     * Persistent storage allows edits of the sheet to be undone with
+     * {@link Sheet#undo()} and redone with {@link Sheet#redo()}.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .persistentStorage()
+     *         .empty(100, 25);
+     * }</pre>
+     *
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder persistentStorage() {
+        this.storage = (rows, columns) -> new PersistentCellStore();
+        return this;
+    }
+
+    /**
+     * Recalculate large updates of any sheet constructed by this builder instance
+     * in parallel on the given pool.
+     * <p>
+     * The cells affected by an update are divided into levels
+     * which only depend upon earlier levels,
+     * and the cells of each level are evaluated concurrently.
+     * Updates which affect few cells are still recalculated on the calling thread.
+     *
+     * <pre>
+     * {@code
+     * Sheet sheet = new SheetBuilder(parser, exp)
+     *         .parallelRecalculation(ForkJoinPool.commonPool())
+     *         .empty(100000, 25);
+     * }</pre>
+     *
+     * @param pool The pool to evaluate cells on.
+     * @return The current instance of the SheetBuilder.
+     */
+    public SheetBuilder parallelRecalculation(ForkJoinPool pool) {
+        this.recalculationPool = pool;
+        return this;
+    }
+
     /**
      * Construct a new empty sheet with the given number of rows and columns.
      * <p>
@@ -85,7 +176,12 @@ public class SheetBuilder {
      * @return A new sheet with the appropriate built-ins and of the specified dimensions.
      */
     public Sheet empty(int rows, int columns) {
-        return new Sheet(parser, new HashMap<>(builtins), defaultExpression, rows, columns);
+        CellStore cells = storage.apply(rows, columns);
+        Sheet sheet = new Sheet(parser, new HashMap<>(builtins), defaultExpression, rows, columns, cells);
+        if (recalculationPool != null) {
+            sheet.setRecalculationPool(recalculationPool);
+        }
+        return sheet;
     }
 
 }
\ No newline at end of file
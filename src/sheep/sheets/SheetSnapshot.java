@@ -0,0 +1,135 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.StringJoiner;
+
+/**
+ * An immutable copy of the formulas and values of a {@link Sheet} at a point in time.
+ * <p>
+ * Expressions are immutable, so a snapshot only copies references to the
+ * expressions of each cell, and may be read from any thread while the sheet
+ * continues to be updated.
+ * A snapshot of a sheet whose cells keep earlier versions copies nothing at all,
+ * it shares an immutable {@link PersistentCellStore.Version} of the cells.
+ * Later updates to the sheet are not reflected in the snapshot.
+ */
+public final class SheetSnapshot {
+    private final int rows;
+    private final int columns;
+    /** The row-major formulas and values of the sheet, null if the snapshot shares a version. */
+    private final Expression[] formulas;
+    private final Expression[] values;
+    /** The shared version of the cells, null if the snapshot holds copies. */
+    private final PersistentCellStore.Version version;
+    private final Expression defaultExpression;
+
+    /**
+     * Construct a snapshot from the row-major formulas and values of a sheet.
+     */
+    SheetSnapshot(int rows, int columns, Expression[] formulas, Expression[] values) {
+        this.rows = rows;
+        this.columns = columns;
+        this.formulas = formulas;
+        this.values = values;
+        this.version = null;
+        this.defaultExpression = null;
+    }
+
+    /**
+     * Construct a snapshot which shares a version of the cells of a sheet,
+     * where cells the version does not hold have the default expression.
+     */
+    SheetSnapshot(int rows, int columns, PersistentCellStore.Version version,
+                  Expression defaultExpression) {
+        this.rows = rows;
+        this.columns = columns;
+        this.formulas = null;
+        this.values = null;
+        this.version = version;
+        this.defaultExpression = defaultExpression;
+    }
+
+    /**
+     * The number of rows of the sheet when the snapshot was taken.
+     * @return The number of rows in the snapshot.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * The number of columns of the sheet when the snapshot was taken.
+     * @return The number of columns in the snapshot.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * The formula expression stored at the location when the snapshot was taken.
+     *
+     * @param location A cell location within the snapshot.
+     * @requires location is within the bounds (row/columns) of the snapshot.
+     * @return The formula expression at the given cell location.
+     */
+    public Expression formulaAt(CellLocation location) {
+        if (version != null) {
+            Expression formula = version.formulaAt(location);
+            return formula == null ? defaultExpression : formula;
+        }
+        return formulas[location.getRow() * columns + location.getColumn()];
+    }
+
+    /**
+     * The value expression stored at the location when the snapshot was taken.
+     *
+     * @param location A cell location within the snapshot.
+     * @requires location is within the bounds (row/columns) of the snapshot.
+     * @return The value expression at the given cell location.
+     */
+    public Expression valueAt(CellLocation location) {
+        if (version != null) {
+            Expression value = version.valueAt(location);
+            return value == null ? defaultExpression : value;
+        }
+        return values[location.getRow() * columns + location.getColumn()];
+    }
+
+    /**
+     * Write the values of a single row to the writer as comma separated text,
+     * followed by a line separator, as per {@link Sheet#toCSV()}.
+     *
+     * @param row A row within the snapshot.
+     * @param writer The writer to write the values to.
+     * @throws IOException If the writer cannot be written to.
+     */
+    public void writeCSVRow(int row, Writer writer) throws IOException {
+        for (int column = 0; column < columns; column++) {
+            if (column > 0) {
+                writer.write(',');
+            }
+            writer.write(valueAt(CellLocation.of(row, column)).render());
+        }
+        writer.write(System.lineSeparator());
+    }
+
+    /**
+     * The formulas of the snapshot in the format of {@link Sheet#encode()}.
+     *
+     * @return The string representation of the snapshot.
+     */
+    public String encode() {
+        StringJoiner builder = new StringJoiner("\n");
+        for (int row = 0; row < rows; row++) {
+            StringJoiner rowEncoding = new StringJoiner("|");
+            for (int column = 0; column < columns; column++) {
+                rowEncoding.add(formulaAt(CellLocation.of(row, column)).render());
+            }
+            builder.add(rowEncoding.toString());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package sheep.sheets;
+
+import sheep.expression.Expression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cell storage that divides the sheet into fixed-size tiles,
+ * only allocating a tile when a cell within it is first written.
+ * <p>
+ * Intended for very large sheets where most cells are empty.
+ * Cells within unallocated tiles cost nothing, so constructing and clearing
+ * a sheet is proportional to the number of written cells
+ * rather than the number of addressable cells.
+ */
+class SparseCellStore implements CellStore {
+    /** Number of rows in each tile, must be a power of two. */
+    private static final int TILE_ROWS = 64;
+    /** Number of columns in each tile, must be a power of two. */
+    private static final int TILE_COLUMNS = 8;
+    private static final int ROW_SHIFT = Integer.numberOfTrailingZeros(TILE_ROWS);
+    private static final int COLUMN_SHIFT = Integer.numberOfTrailingZeros(TILE_COLUMNS);
+
+    /**
+     * A fixed-size block of cells.
+     */
+    private static class Tile {
+        private final Expression[] formulas = new Expression[TILE_ROWS * TILE_COLUMNS];
+        private final Expression[] values = new Expression[TILE_ROWS * TILE_COLUMNS];
+    }
+
+    private final Map<Long, Tile> tiles = new HashMap<>();
+    private final DependencyGraph usages = new DependencyGraph();
+
+    private static long key(int tileRow, int tileColumn) {
+        return ((long) tileRow << 32) | (tileColumn & 0xFFFFFFFFL);
+    }
+
+    private static long key(CellLocation location) {
+        return key(location.getRow() >> ROW_SHIFT, location.getColumn() >> COLUMN_SHIFT);
+    }
+
+    private static int offset(CellLocation location) {
+        return (location.getRow() & (TILE_ROWS - 1)) * TILE_COLUMNS
+                + (location.getColumn() & (TILE_COLUMNS - 1));
+    }
+
+    private Tile find(CellLocation location) {
+        return tiles.get(key(location));
+    }
+
+    private Tile allocate(CellLocation location) {
+        return tiles.computeIfAbsent(key(location), key -> new Tile());
+    }
+
+    @Override
+    public boolean holds(CellLocation location) {
+        return formulaAt(location) != null;
+    }
+
+    @Override
+    public Expression formulaAt(CellLocation location) {
+        Tile tile = find(location);
+        if (tile == null) {
+            return null;
+        }
+        return tile.formulas[offset(location)];
+    }
+
+    @Override
+    public Expression valueAt(CellLocation location) {
+        Tile tile = find(location);
+        if (tile == null) {
+            return null;
+        }
+        return tile.values[offset(location)];
+    }
+
+    @Override
+    public Set<CellLocation> usagesOf(CellLocation location) {
+        return usages.usagesOf(location);
+    }
+
+    @Override
+    public Set<CellLocation> referencesOf(CellLocation location) {
+        return usages.referencesOf(location);
+    }
+
+    @Override
+    public void setFormula(CellLocation location, Expression formula) {
+        allocate(location).formulas[offset(location)] = formula;
+    }
+
+    @Override
+    public void setValue(CellLocation location, Expression value) {
+        allocate(location).values[offset(location)] = value;
+    }
+
+    @Override
+    public void addUsage(CellLocation location, CellLocation usage) {
+        usages.addEdge(location, usage);
+    }
+
+    @Override
+    public void removeUsage(CellLocation location, CellLocation usage) {
+        usages.removeEdge(location, usage);
+    }
+
+    @Override
+    public Iterable<CellLocation> locations() {
+        List<CellLocation> locations = new ArrayList<>();
+        for (Map.Entry<Long, Tile> entry : tiles.entrySet()) {
+            int tileRow = (int) (entry.getKey() >> 32);
+            int tileColumn = (int) (long) entry.getKey();
+            Expression[] formulas = entry.getValue().formulas;
+            for (int offset = 0; offset < formulas.length; offset++) {
+                if (formulas[offset] != null) {
+                    locations.add(CellLocation.of(
+                            (tileRow << ROW_SHIFT) + offset / TILE_COLUMNS,
+                            (tileColumn << COLUMN_SHIFT) + offset % TILE_COLUMNS));
+                }
+            }
+        }
+        return locations;
+    }
+
+    @Override
+    public void clear() {
+        tiles.clear();
+        usages.clear();
+    }
+}
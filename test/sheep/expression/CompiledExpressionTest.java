@@ -0,0 +1,118 @@
+package sheep.expression;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.arithmetic.Arithmetic;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+import sheep.expression.basic.Reference;
+import sheep.sheets.CellLocation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CompiledExpressionTest {
+    private Map<String, Expression> state;
+    private Scope scope;
+
+    @Before
+    public void setUp() {
+        state = new HashMap<>();
+        state.put("A1", new Constant(4));
+        state.put("B2", new Constant(6));
+        state.put("hundred", new Constant(100));
+        scope = new Scope() {
+            @Override
+            public Expression valueAt(CellLocation location) {
+                return state.get(location.toString());
+            }
+
+            @Override
+            public Map<String, Expression> state() {
+                return state;
+            }
+        };
+    }
+
+    private void assertSameResult(Expression expression) throws TypeError {
+        assertEquals(expression.value(state), expression.compiled().value(scope));
+        assertEquals(expression.value(state).value(), expression.compiled().numeric(scope));
+    }
+
+    @Test
+    public void testCompiledCached() {
+        Expression expression = new Reference("A1");
+        assertSame(expression.compiled(), expression.compiled());
+    }
+
+    @Test
+    public void testConstant() throws TypeError {
+        Constant constant = new Constant(42);
+        assertSame(constant, constant.compiled().value(scope));
+        assertEquals(42, constant.compiled().numeric(scope));
+    }
+
+    @Test
+    public void testReferences() throws TypeError {
+        assertSameResult(new Reference("A1"));
+        assertSameResult(new Reference("hundred"));
+        Reference unknown = new Reference("C3");
+        assertSame(unknown, unknown.compiled().value(scope));
+    }
+
+    @Test
+    public void testArithmetic() throws TypeError {
+        assertSameResult(Arithmetic.plus(new Expression[]{
+                Arithmetic.times(new Expression[]{new Reference("A1"), new Reference("B2")}),
+                Arithmetic.minus(new Expression[]{new Reference("hundred"), new Constant(1), new Constant(2)}),
+                Arithmetic.divide(new Expression[]{new Constant(100), new Reference("A1")})
+        }));
+    }
+
+    @Test
+    public void testComparisons() throws TypeError {
+        assertSameResult(Arithmetic.less(new Expression[]{
+                new Constant(1), new Reference("A1"), new Reference("B2")}));
+        assertSameResult(Arithmetic.less(new Expression[]{
+                new Constant(1), new Reference("B2"), new Reference("A1")}));
+        assertSameResult(Arithmetic.equal(new Expression[]{
+                new Constant(4), new Reference("A1"), new Constant(4)}));
+        assertSameResult(Arithmetic.equal(new Expression[]{
+                new Constant(5), new Reference("A1"), new Constant(4)}));
+    }
+
+    @Test(expected = TypeError.class)
+    public void testArithmeticTypeError() throws TypeError {
+        Arithmetic.less(new Expression[]{new Constant(9), new Constant(1), new Nothing()})
+                .compiled().value(scope);
+    }
+
+    @Test
+    public void testInterpreted() throws TypeError {
+        Expression expression = new Expression() {
+            @Override
+            public Set<String> dependencies() {
+                return Set.of("A1");
+            }
+
+            @Override
+            public long value() throws TypeError {
+                throw new TypeError();
+            }
+
+            @Override
+            public Expression value(Map<String, Expression> state) throws TypeError {
+                return new Constant(state.get("A1").value() * 2);
+            }
+
+            @Override
+            public String render() {
+                return "A1 * 2";
+            }
+        };
+        assertEquals(new Constant(8), expression.compiled().value(scope));
+    }
+}
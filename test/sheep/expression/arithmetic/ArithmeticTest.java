@@ -6,11 +6,13 @@ import sheep.expression.Expression;
 import sheep.expression.TypeError;
 import sheep.expression.basic.Constant;
 import sheep.expression.basic.Reference;
+import sheep.sheets.CellLocation;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -57,6 +59,22 @@ public class ArithmeticTest {
         assertEquals(new HashSet<>(List.of("Hello", "Hi")), base.dependencies());
     }
 
+    @Test
+    public void testDependenciesAreShared() {
+        base = new Exp(new Expression[]{new Reference("Hello"), new Reference("Hi")});
+        assertSame(base.dependencies(), base.dependencies());
+        assertThrows(UnsupportedOperationException.class, () -> base.dependencies().add("Other"));
+    }
+
+    @Test
+    public void testCellDependencies() {
+        base = new Exp(new Expression[]{new Exp(new Expression[]{new Reference("B2")}),
+                new Reference("A0"), new Reference("Hi")});
+        assertEquals(Set.of(CellLocation.of(2, 'B'), CellLocation.of(0, 'A')),
+                base.cellDependencies());
+        assertSame(base.cellDependencies(), base.cellDependencies());
+    }
+
     /**
      * Assert that the result of `Arithmetic.divide` is an instance of the `Divide` class.
      */
@@ -25,6 +25,8 @@ public class ConstantTest {
     @Test
     public void testDependencies() {
         assertEquals(new HashSet<>(), base.dependencies());
+        assertSame(base.dependencies(), other.dependencies());
+        assertTrue(base.cellDependencies().isEmpty());
     }
 
     @Test
@@ -4,11 +4,13 @@ import org.junit.Before;
 import org.junit.Test;
 import sheep.expression.Expression;
 import sheep.expression.TypeError;
+import sheep.sheets.CellLocation;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -37,6 +39,13 @@ public class ReferenceTest {
         assertEquals(new HashSet<>(Collections.singleton("A0")), same.dependencies());
     }
 
+    @Test
+    public void testCellDependencies() {
+        assertEquals(Set.of(CellLocation.of(0, 'A')), base.cellDependencies());
+        assertTrue(new Reference("hello").cellDependencies().isEmpty());
+        assertSame(base.dependencies(), base.dependencies());
+    }
+
     @Test
     public void testEquals() {
         assertNotEquals(other, base);
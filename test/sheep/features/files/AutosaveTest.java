@@ -0,0 +1,223 @@
+package sheep.features.files;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.ExpressionFactory;
+import sheep.parsing.CachingParser;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+public class AutosaveTest {
+    private Parser parser;
+    private Path file;
+    private Path journal;
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExpressionFactory factory = new CoreFactory();
+        parser = new CachingParser(new SimpleParser(factory), 64);
+        Path directory = Files.createTempDirectory("autosave");
+        file = directory.resolve("sheet.autosave");
+        journal = directory.resolve("sheet.autosave.journal");
+    }
+
+    private Sheet sheet() {
+        return new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(3, 2);
+    }
+
+    /**
+     * Wait for every write which has been submitted to the executor.
+     */
+    private void drain() {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test(timeout = 6000)
+    public void testFirstSaveWritesFile() throws IOException {
+        Sheet sheet = sheet();
+        sheet.update(0, 0, "4");
+        Autosave autosave = new Autosave(sheet, file, 1000, executor);
+
+        assertTrue(autosave.save(0));
+        drain();
+        assertEquals("1\n3,2\n4|\n|\n|\n", Files.readString(file));
+        assertEquals("1\n", Files.readString(journal));
+    }
+
+    @Test(timeout = 6000)
+    public void testCoalescesWithinInterval() throws IOException {
+        Sheet sheet = sheet();
+        Autosave autosave = new Autosave(sheet, file, 1000, executor);
+        assertTrue(autosave.save(0));
+        drain();
+
+        sheet.update(1, 0, "5");
+        assertFalse(autosave.save(500));
+        sheet.update(1, 1, "A1");
+        assertFalse(autosave.save(999));
+        assertTrue(autosave.save(1000));
+        drain();
+
+        assertEquals(List.of("1", "1:5|A1"), Files.readAllLines(journal));
+    }
+
+    @Test(timeout = 6000)
+    public void testOnlyChangedRowsAppended() throws IOException {
+        Sheet sheet = sheet();
+        sheet.update(0, 0, "4");
+        Autosave autosave = new Autosave(sheet, file, 0, executor);
+        assertTrue(autosave.save(0));
+        drain();
+        assertFalse(autosave.save(1));
+
+        sheet.update(2, 1, "7");
+        // re-entering the same formula is not a change
+        sheet.update(0, 0, "4");
+        assertTrue(autosave.save(2));
+        drain();
+
+        assertEquals(List.of("1", "2:|7"), Files.readAllLines(journal));
+        assertEquals("1\n3,2\n4|\n|\n|\n", Files.readString(file));
+    }
+
+    @Test(timeout = 6000)
+    public void testCompactsLongJournal() throws IOException {
+        Sheet sheet = sheet();
+        Autosave autosave = new Autosave(sheet, file, 0, executor);
+        autosave.save(0);
+        drain();
+        for (int i = 1; i <= 4; i++) {
+            sheet.update(0, 0, String.valueOf(i));
+            assertTrue(autosave.save(i));
+            drain();
+        }
+
+        assertEquals("2\n3,2\n4|\n|\n|\n", Files.readString(file));
+        assertEquals("2\n", Files.readString(journal));
+    }
+
+    @Test(timeout = 6000)
+    public void testRestoreReplaysJournal() throws IOException {
+        Sheet sheet = sheet();
+        Autosave autosave = new Autosave(sheet, file, 0, executor);
+        sheet.update(0, 0, "4");
+        autosave.save(0);
+        drain();
+        sheet.update(2, 1, "A0 + 1");
+        autosave.save(1);
+        drain();
+
+        Sheet restored = new SheetBuilder(parser, new CoreFactory().createEmpty()).empty(1, 1);
+        assertTrue(new Autosave(restored, file, 0, executor).restore());
+        assertEquals(3, restored.getRows());
+        assertEquals(2, restored.getColumns());
+        assertEquals(sheet.toCSV(), restored.toCSV());
+        assertEquals("5", restored.valueAt(2, 1).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testRestoreIgnoresStaleJournal() throws IOException {
+        Files.writeString(file, "3\n1,2\n1|2\n");
+        Files.writeString(journal, "2\n0:8|9\n");
+
+        Sheet restored = sheet();
+        assertTrue(new Autosave(restored, file, 0, executor).restore());
+        assertEquals("1", restored.valueAt(0, 0).getContent());
+        assertEquals("2", restored.valueAt(0, 1).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testTrailingSave() throws IOException, InterruptedException {
+        Sheet sheet = sheet();
+        Autosave autosave = new Autosave(sheet, file, 50, executor);
+        assertTrue(autosave.save(System.currentTimeMillis()));
+        drain();
+
+        sheet.update(1, 0, "5");
+        assertFalse(autosave.save(System.currentTimeMillis()));
+        while (Files.readAllLines(journal).size() < 2) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("1", "1:5|"), Files.readAllLines(journal));
+    }
+
+    @Test(timeout = 6000)
+    public void testGenerationContinues() throws IOException {
+        Files.writeString(file, "5\n1,1\n7\n");
+        Autosave autosave = new Autosave(sheet(), file, 0, executor);
+        assertTrue(autosave.save(0));
+        drain();
+        assertEquals("6\n3,2\n|\n|\n|\n", Files.readString(file));
+        assertEquals("6\n", Files.readString(journal));
+    }
+
+    @Test(timeout = 6000)
+    public void testFailedSaveRetried() throws IOException {
+        Path directory = file.resolveSibling("missing");
+        Sheet sheet = sheet();
+        Autosave autosave = new Autosave(sheet, directory.resolve("sheet.autosave"), 0, executor);
+        assertTrue(autosave.save(0));
+        drain();
+        assertFalse(Files.exists(directory));
+
+        Files.createDirectory(directory);
+        // nothing was saved, so an unchanged sheet is still written
+        assertTrue(autosave.save(1));
+        drain();
+        assertEquals("1\n3,2\n|\n|\n|\n",
+                Files.readString(directory.resolve("sheet.autosave")));
+    }
+
+    @Test(timeout = 6000)
+    public void testRestoreReportsBadCells() throws IOException {
+        Files.writeString(file, "1\n1,2\nA0|2\n");
+        Sheet restored = sheet();
+        assertThrows(IOException.class,
+                () -> new Autosave(restored, file, 0, executor).restore());
+        assertEquals(1, restored.getRows());
+        assertEquals("2", restored.valueAt(0, 1).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testRestoreRejectsCorruptFiles() throws IOException {
+        Autosave autosave = new Autosave(sheet(), file, 0, executor);
+        for (String contents : List.of("", "1\n", "1\n3\n", "1\n-1,2\n")) {
+            Files.writeString(file, contents);
+            assertThrows(IOException.class, autosave::restore);
+        }
+
+        Files.writeString(file, "1\n1,2\n1|2\n");
+        for (String records : List.of("1\n5:8|9\n", "1\n-1:8|9\n", "1\n8|9\n")) {
+            Files.writeString(journal, records);
+            assertThrows(IOException.class, autosave::restore);
+        }
+    }
+
+    @Test(timeout = 6000)
+    public void testRestoreMissingFile() throws IOException {
+        assertFalse(new Autosave(sheet(), file, 0, executor).restore());
+    }
+}
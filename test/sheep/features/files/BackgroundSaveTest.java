@@ -0,0 +1,92 @@
+package sheep.features.files;
+
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.ExpressionFactory;
+import sheep.parsing.SimpleParser;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+import sheep.sheets.SheetSnapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BackgroundSaveTest {
+
+    private Sheet sheet() {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(3, 2);
+        sheet.update(0, 0, "4");
+        sheet.update(2, 1, "A0 + 1");
+        return sheet;
+    }
+
+    @Test(timeout = 6000)
+    public void testSaveSnapshot() throws IOException, ExecutionException, InterruptedException {
+        Path directory = Files.createTempDirectory("save");
+        Path target = directory.resolve("sheet.csv");
+        Files.writeString(target, "previous");
+
+        Sheet sheet = sheet();
+        String expected = "3,2\n" + sheet.toCSV();
+        SheetSnapshot snapshot = sheet.snapshot();
+        // edits after the snapshot are not saved
+        sheet.update(1, 1, "100");
+
+        List<Integer> progress = new ArrayList<>();
+        Path saved = new BackgroundSave(Runnable::run)
+                .save(snapshot, target, (written, total) -> progress.add(written * 10 + total))
+                .get();
+
+        assertEquals(target, saved);
+        assertEquals(expected, Files.readString(target, Charset.defaultCharset()));
+        assertEquals(List.of(13, 23, 33), progress);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test(timeout = 6000)
+    public void testSaveContents() throws IOException, ExecutionException, InterruptedException {
+        Path directory = Files.createTempDirectory("save");
+        Path target = directory.resolve("sheet.bin");
+        Files.writeString(target, "previous");
+
+        new BackgroundSave(Runnable::run)
+                .save(target, channel -> channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3})))
+                .get();
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(target));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test(timeout = 6000)
+    public void testFailedSaveLeavesTarget() throws IOException {
+        Path directory = Files.createTempDirectory("save");
+        Path target = directory.resolve("sheet.csv");
+        Files.writeString(target, "previous");
+
+        SheetSnapshot snapshot = sheet().snapshot();
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> new BackgroundSave(Runnable::run).save(snapshot, target, (written, total) -> {
+                    throw new IllegalStateException("interrupted save");
+                }).get());
+        assertTrue(error.getCause() instanceof IllegalStateException);
+
+        assertEquals("previous", Files.readString(target));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package sheep.features.files;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.ExpressionFactory;
+import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
+import sheep.sheets.CellLocation;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+import sheep.sheets.SheetSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BinarySheetFormatTest {
+    private ExpressionFactory factory;
+    private Parser parser;
+    private BinarySheetFormat format;
+
+    @Before
+    public void setUp() {
+        factory = new CoreFactory();
+        parser = new SimpleParser(factory);
+        format = new BinarySheetFormat(parser);
+    }
+
+    private Sheet sheet(int rows, int columns) {
+        return new SheetBuilder(parser, factory.createEmpty()).empty(rows, columns);
+    }
+
+    private byte[] save(Sheet sheet) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        format.write(sheet, output);
+        return output.toByteArray();
+    }
+
+    @Test
+    public void testWriteSnapshot() throws IOException {
+        Sheet original = sheet(2, 2);
+        assertTrue(original.update(0, 0, "5").isSuccess());
+        SheetSnapshot snapshot = original.snapshot();
+        String expected = original.encode();
+        // edits after the snapshot are not saved
+        original.update(1, 1, "A0");
+        original.updateDimensions(3, 3);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        format.write(snapshot, output);
+        Sheet loaded = sheet(1, 1);
+        format.read(loaded, new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(expected, loaded.encode());
+        assertEquals("5", loaded.valueAt(0, 0).getContent());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Sheet original = sheet(4, 3);
+        assertTrue(original.update(0, 0, "5").isSuccess());
+        assertTrue(original.update(1, 0, "A0 * 2").isSuccess());
+        assertTrue(original.update(2, 0, "A1 + A0").isSuccess());
+        assertTrue(original.update(3, 2, "A2 - 1").isSuccess());
+
+        Sheet loaded = sheet(1, 1);
+        loaded.update(0, 0, "7");
+        format.read(loaded, new ByteArrayInputStream(save(original)));
+
+        assertEquals(original.encode(), loaded.encode());
+        assertEquals(4, loaded.getRows());
+        assertEquals(3, loaded.getColumns());
+        assertEquals("14", loaded.valueAt(3, 2).getContent());
+        assertEquals(1, loaded.usedBy(new CellLocation(2, 'A')).size());
+    }
+
+    @Test
+    public void testRepeatedFormulasStoredOnce() throws IOException {
+        Sheet small = sheet(10, 10);
+        Sheet repeated = sheet(10, 10);
+        for (int row = 0; row < 10; row++) {
+            for (int column = 0; column < 10; column++) {
+                repeated.update(row, column, "1");
+            }
+        }
+        // the table holds "1" rather than "", the cell indexes are the same size
+        assertEquals(save(small).length + 1, save(repeated).length);
+    }
+
+    @Test
+    public void testParsesEachFormulaOnce() throws IOException {
+        Sheet original = sheet(5, 5);
+        for (int row = 0; row < 5; row++) {
+            original.update(row, 0, "42");
+        }
+        int[] parses = {0};
+        Parser counting = input -> {
+            parses[0]++;
+            return parser.parse(input);
+        };
+        new BinarySheetFormat(counting).read(sheet(1, 1), new ByteArrayInputStream(save(original)));
+        assertEquals(2, parses[0]);
+    }
+
+    @Test
+    public void testLoadDoesNotEvaluate() throws IOException {
+        Sheet original = sheet(50, 1);
+        original.update(0, 0, "1");
+        for (int row = 1; row < 50; row++) {
+            original.update(row, 0, "A" + (row - 1) + " + 1");
+        }
+
+        Sheet loaded = sheet(1, 1);
+        format.read(loaded, new ByteArrayInputStream(save(original)));
+        assertEquals(0, loaded.getEvaluationCount());
+        assertEquals("50", loaded.valueAt(49, 0).getContent());
+
+        // loaded cells still propagate updates
+        assertTrue(loaded.update(0, 0, "10").isSuccess());
+        assertEquals("59", loaded.valueAt(49, 0).getContent());
+    }
+
+    @Test
+    public void testReadFormulasOnlyVersion() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(BinarySheetFormat.MAGIC);
+        data.writeShort(1);
+        data.writeInt(1);
+        data.writeInt(2);
+        data.writeInt(2);
+        data.writeByte(1);
+        data.writeBytes("3");
+        data.writeByte(6);
+        data.writeBytes("A0 * 2");
+        data.writeByte(0);
+        data.writeByte(1);
+
+        Sheet loaded = sheet(1, 1);
+        format.read(loaded, new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals("3|A0 * 2", loaded.encode());
+        assertEquals("6", loaded.valueAt(0, 1).getContent());
+    }
+
+    @Test
+    public void testRejectsOtherFiles() {
+        byte[] csv = "2,2\n1,2\n3,4\n".getBytes();
+        assertThrows(IOException.class, () -> format.read(sheet(1, 1), new ByteArrayInputStream(csv)));
+    }
+
+    @Test
+    public void testRejectsTruncatedFiles() throws IOException {
+        Sheet original = sheet(3, 3);
+        original.update(1, 1, "A0");
+        byte[] bytes = save(original);
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+        assertThrows(IOException.class, () -> format.read(sheet(1, 1), new ByteArrayInputStream(truncated)));
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectsCorruptTableSize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(BinarySheetFormat.MAGIC);
+        data.writeShort(BinarySheetFormat.VERSION);
+        data.writeInt(100000);
+        data.writeInt(26);
+        data.writeInt(Integer.MAX_VALUE);
+        assertThrows(IOException.class,
+                () -> format.read(sheet(1, 1), new ByteArrayInputStream(bytes.toByteArray())));
+
+        byte[] overflowing = bytes.toByteArray();
+        overflowing[overflowing.length - 4] = (byte) 0x80;
+        assertThrows(IOException.class,
+                () -> format.read(sheet(1, 1), new ByteArrayInputStream(overflowing)));
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectsCorruptEntryLengths() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(BinarySheetFormat.MAGIC);
+        data.writeShort(BinarySheetFormat.VERSION);
+        data.writeInt(1);
+        data.writeInt(1);
+        data.writeInt(1);
+        byte[] header = bytes.toByteArray();
+
+        // a length of Integer.MAX_VALUE with only a few bytes following it
+        data.write(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        data.writeBytes("12");
+        assertThrows(IOException.class,
+                () -> format.read(sheet(1, 1), new ByteArrayInputStream(bytes.toByteArray())));
+
+        // a length which overflows to a negative number
+        byte[] negative = Arrays.copyOf(header, header.length + 5);
+        Arrays.fill(negative, header.length, negative.length - 1, (byte) 0xFF);
+        negative[negative.length - 1] = 0x0F;
+        assertThrows(IOException.class,
+                () -> format.read(sheet(1, 1), new ByteArrayInputStream(negative)));
+    }
+}
@@ -0,0 +1,79 @@
+package sheep.features.files;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.ExpressionFactory;
+import sheep.parsing.SimpleParser;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class MappedFileLoadingTest {
+    private Sheet sheet;
+    private MappedFileLoading loading;
+
+    @Before
+    public void setUp() {
+        ExpressionFactory factory = new CoreFactory();
+        SimpleParser parser = new SimpleParser(factory);
+        sheet = new SheetBuilder(parser, factory.createEmpty()).empty(1, 1);
+        loading = new MappedFileLoading(sheet, parser, factory);
+    }
+
+    private Path file(String contents) throws IOException {
+        Path file = Files.createTempFile("mapped", ".csv");
+        Files.writeString(file, contents, Charset.defaultCharset());
+        return file;
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        String csv = "4,3\n5,A0 * 2,\n\n-7,O_O, 9223372036854775808\n";
+        Path file = file(csv);
+        assertEquals(csv.length(), loading.load(file));
+
+        assertEquals(4, sheet.getRows());
+        assertEquals(3, sheet.getColumns());
+        assertEquals("10", sheet.valueAt(0, 1).getContent());
+        assertEquals("-7", sheet.valueAt(2, 0).getContent());
+        assertEquals("", sheet.formulaAt(1, 0).getContent());
+        assertEquals("", sheet.formulaAt(2, 1).getContent());
+    }
+
+    @Test
+    public void testLoadInWindows() throws IOException {
+        String csv = "4,3\r\n5,A0 * 2,\r\n\r\n-7,O_O, 9223372036854775808\r\n1,2,3";
+        Path file = file(csv);
+        assertEquals(csv.length(), loading.load(file, 32));
+
+        assertEquals("10", sheet.valueAt(0, 1).getContent());
+        assertEquals("", sheet.formulaAt(1, 0).getContent());
+        assertEquals("-7", sheet.valueAt(2, 0).getContent());
+        assertEquals("3", sheet.valueAt(3, 2).getContent());
+        assertThrows(IOException.class, () -> loading.load(file, 4));
+    }
+
+    @Test
+    public void testLoadOnlyDimensions() throws IOException {
+        loading.load(file("2,2"));
+        assertEquals(2, sheet.getRows());
+        assertEquals(2, sheet.getColumns());
+    }
+
+    @Test
+    public void testRejectsBadDimensions() throws IOException {
+        Path missingColumns = file("12\n1,2\n");
+        assertThrows(IOException.class, () -> loading.load(missingColumns));
+        Path negative = file("-1,2\n1,2\n");
+        assertThrows(IOException.class, () -> loading.load(negative));
+        Path text = file("rows,columns\n1,2\n");
+        assertThrows(NumberFormatException.class, () -> loading.load(text));
+    }
+}
@@ -0,0 +1,71 @@
+package sheep.games.life;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.ExpressionFactory;
+import sheep.games.MockUI;
+import sheep.parsing.SimpleParser;
+import sheep.sheets.CellLocation;
+import sheep.sheets.Sheet;
+import sheep.sheets.SheetBuilder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class LifeTest {
+    private Sheet sheet;
+    private MockUI ui;
+
+    @Before
+    public void setup() {
+        ExpressionFactory factory = new CoreFactory();
+        sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(5, 5);
+        ui = new MockUI(sheet, sheet);
+        new Life(sheet).register(ui);
+    }
+
+    private Set<CellLocation> alive() {
+        Set<CellLocation> alive = new HashSet<>();
+        for (int row = 0; row < sheet.getRows(); row++) {
+            for (int column = 0; column < sheet.getColumns(); column++) {
+                if (sheet.valueAt(row, column).getContent().equals("1")) {
+                    alive.add(new CellLocation(row, column));
+                }
+            }
+        }
+        return alive;
+    }
+
+    @Test
+    public void blinkerOscillates() {
+        Set<CellLocation> vertical = Set.of(new CellLocation(1, 2),
+                new CellLocation(2, 2), new CellLocation(3, 2));
+        Set<CellLocation> horizontal = Set.of(new CellLocation(2, 1),
+                new CellLocation(2, 2), new CellLocation(2, 3));
+        for (CellLocation location : vertical) {
+            sheet.update(location.getRow(), location.getColumn(), "1");
+        }
+
+        ui.simulateFeature("gol-start", 0, 0);
+        // every cell of a generation is computed from the previous generation
+        ui.simulateTick();
+        assertEquals(horizontal, alive());
+        ui.simulateTick();
+        assertEquals(vertical, alive());
+        ui.simulateTick();
+        assertEquals(horizontal, alive());
+    }
+
+    @Test
+    public void stoppedGameDoesNotChange() {
+        sheet.update(2, 2, "1");
+        ui.simulateFeature("gol-start", 0, 0);
+        ui.simulateFeature("gol-end", 0, 0);
+        ui.simulateTick();
+        assertEquals(Set.of(new CellLocation(2, 2)), alive());
+    }
+}
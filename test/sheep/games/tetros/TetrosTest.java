@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.StringJoiner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class TetrosTest {
@@ -149,6 +150,41 @@ public class TetrosTest {
         ));
     }
 
+    /**
+     * Test that the moves of the game are not remembered for undo,
+     * on a sheet which publishes each edit to lock-free readers.
+     */
+    @Test
+    public void movesNotUndone() {
+        ExpressionFactory factory = new CoreFactory();
+        sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .persistentStorage()
+                .empty(10, 5);
+        ui = new MockUI(sheet, sheet);
+        new Tetros(sheet, picker).register(ui);
+
+        ui.simulateFeature("tetros", 1, 1);
+        for (int tick = 0; tick < 12; tick++) {
+            ui.simulateTick();
+        }
+        ui.simulatePress("d", 1, 1);
+        assertEmptyExcept(Map.of(
+                new CellLocation(9, 1), "8",
+                new CellLocation(8, 0), "8",
+                new CellLocation(8, 1), "8",
+                new CellLocation(8, 2), "8",
+                new CellLocation(4, 2), "8",
+                new CellLocation(3, 1), "8",
+                new CellLocation(3, 2), "8",
+                new CellLocation(3, 3), "8"
+        ));
+
+        // only starting the game is undone
+        assertTrue(sheet.undo());
+        assertEmptyExcept(Map.of());
+        assertFalse(sheet.undo());
+    }
+
     /**
      * Test that quick dropping (s) a tile places it on the bottom of the board.
      */
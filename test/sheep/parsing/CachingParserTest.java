@@ -0,0 +1,67 @@
+package sheep.parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+
+import static org.junit.Assert.*;
+
+public class CachingParserTest {
+    private int parses;
+    private CachingParser parser;
+
+    @Before
+    public void setUp() {
+        parses = 0;
+        Parser counting = input -> {
+            parses++;
+            return new SimpleParser(new EchoFactory()).parse(input);
+        };
+        parser = new CachingParser(counting, 2);
+    }
+
+    @Test
+    public void testRepeatedInputShared() throws ParseException {
+        Expression first = parser.parse("1 + A0");
+        Expression second = parser.parse("1 + A0");
+        assertSame(first, second);
+        assertEquals(1, parses);
+        assertEquals(1, parser.getHits());
+        assertEquals(1, parser.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws ParseException {
+        parser.parse("1");
+        parser.parse("2");
+        parser.parse("1");
+        parser.parse("3");
+        assertEquals(2, parser.size());
+        parser.parse("1");
+        assertEquals(3, parses);
+        parser.parse("2");
+        assertEquals(4, parses);
+    }
+
+    @Test
+    public void testFailureNotCached() {
+        assertThrows(ParseException.class, () -> parser.parse("O_O"));
+        assertThrows(ParseException.class, () -> parser.parse("O_O"));
+        assertEquals(2, parses);
+        assertEquals(0, parser.size());
+    }
+
+    @Test
+    public void testClear() throws ParseException {
+        parser.parse("1");
+        parser.clear();
+        parser.parse("1");
+        assertEquals(2, parses);
+        assertEquals(2, parser.getMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new CachingParser(new SimpleParser(new EchoFactory()), 0);
+    }
+}
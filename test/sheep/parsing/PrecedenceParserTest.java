@@ -0,0 +1,106 @@
+package sheep.parsing;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.Expression;
+
+import static org.junit.Assert.*;
+
+public class PrecedenceParserTest {
+    private Parser parser;
+    private Parser simple;
+
+    @Before
+    public void setUp() {
+        parser = new PrecedenceParser(new EchoFactory());
+        simple = new SimpleParser(new EchoFactory());
+    }
+
+    /**
+     * Assert that both parsers agree on the result of parsing the input.
+     */
+    private void assertSameParse(String input) {
+        String expected;
+        try {
+            expected = simple.parse(input).toString();
+        } catch (ParseException e) {
+            assertThrows(ParseException.class, () -> parser.parse(input));
+            return;
+        }
+        try {
+            assertEquals(input, expected, parser.parse(input).toString());
+        } catch (ParseException e) {
+            fail("Unexpected parse exception for " + input);
+        }
+    }
+
+    @Test
+    public void testNothing() throws ParseException {
+        assertEquals("(Empty)", parser.parse("").toString());
+        assertEquals("(Empty)", parser.parse("\t    ").toString());
+    }
+
+    @Test
+    public void testConstant() throws ParseException {
+        assertEquals("(Constant: 42)", parser.parse("  42\t").toString());
+        assertEquals("(Constant: -42)", parser.parse("   -42").toString());
+        assertEquals("(Constant: 0)", parser.parse("00000").toString());
+    }
+
+    @Test
+    public void testConstantOverflowIsReference() throws ParseException {
+        assertEquals("(Reference: 9223372036854775808)", parser.parse("9223372036854775808").toString());
+        assertEquals("(Constant: -9223372036854775808)", parser.parse("-9223372036854775808").toString());
+    }
+
+    @Test
+    public void testReference() throws ParseException {
+        assertEquals("(Reference: OO)", parser.parse("   OO  ").toString());
+    }
+
+    @Test
+    public void testArithmeticNested() throws ParseException {
+        Expression expression = parser.parse("3* 2 * 20 - 2/15 +12* 100");
+        assertEquals("(Operator: + [(Operator: - [(Operator: * [(Constant: 3), (Constant: 2), (Constant: 20)]), (Operator: / [(Constant: 2), (Constant: 15)])]), (Operator: * [(Constant: 12), (Constant: 100)])])", expression.toString());
+    }
+
+    @Test
+    public void testArithmeticFlattened() throws ParseException {
+        Expression expression = parser.parse("4 + 5 + 7 * 12 + 3");
+        assertEquals("(Operator: + [(Constant: 4), (Constant: 5), (Operator: * [(Constant: 7), (Constant: 12)]), (Constant: 3)])", expression.toString());
+    }
+
+    @Test
+    public void testComparison() throws ParseException {
+        Expression expression = parser.parse("A1 + 1 = 2 < B2");
+        assertEquals("(Operator: = [(Operator: + [(Reference: A1), (Constant: 1)]), (Operator: < [(Constant: 2), (Reference: B2)])])", expression.toString());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testInvalidChars() throws ParseException {
+        parser.parse("_ =_");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testNoOperands() throws ParseException {
+        new PrecedenceParser(new CoreFactory()).parse(" + ");
+    }
+
+    /**
+     * Assert that the parser matches the simple parser on inputs
+     * with signs, empty operands and trailing operators.
+     */
+    @Test
+    public void testMatchesSimpleParser() {
+        String[] inputs = {
+                "3 + -5", "3 * -5", "-5 * 3", "- 5", "+5", "2 - +5", "5-", "5--", "5- -",
+                "5 - - ", "-a", "+", "++", "=", " - a", "a + b - c", "a - b + c",
+                "1 < 2 < 3", "1 = = 2", "a / b / c * d", "1\t+\n2", "3 * * 4", "a&b + 1",
+                "99999999999999999999 + 1", "-9223372036854775809", "1 +-+ 2"
+        };
+        for (String input : inputs) {
+            assertSameParse(input);
+        }
+    }
+}
@@ -289,4 +289,36 @@ public class CellLocationTest {
         assertEquals("F10", cell.toString());
     }
 
+    /**
+     * Assert that repeated calls to of for the same location return the same instance,
+     * equal to a constructed location.
+     */
+    @Test
+    public void testOfCanonical() {
+        CellLocation first = CellLocation.of(10, 5);
+        assertSame(first, CellLocation.of(10, 5));
+        assertSame(first, CellLocation.of(10, 'F'));
+        assertEquals(new CellLocation(10, 5), first);
+        assertEquals(new CellLocation(10, 5).hashCode(), first.hashCode());
+        assertEquals("F10", first.toString());
+    }
+
+    /**
+     * Assert that of still works for locations outside the canonical table.
+     */
+    @Test
+    public void testOfLargeRow() {
+        CellLocation cell = CellLocation.of(5000000, 'C');
+        assertEquals(new CellLocation(5000000, 2), cell);
+        assertEquals("C5000000", cell.toString());
+        assertNotSame(cell, CellLocation.of(5000000, 'C'));
+    }
+
+    /**
+     * Assert that references are parsed to canonical locations.
+     */
+    @Test
+    public void testMaybeReferenceCanonical() {
+        assertSame(CellLocation.of(23, 'B'), CellLocation.maybeReference("B23").get());
+    }
 }
@@ -0,0 +1,82 @@
+package sheep.sheets;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CellSetTest {
+    private static CellSet of(CellLocation... locations) {
+        CellSet.Builder builder = new CellSet.Builder();
+        for (CellLocation location : locations) {
+            builder.add(CellSet.key(location));
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testEmpty() {
+        CellSet set = of();
+        assertSame(CellSet.EMPTY, set);
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(new CellLocation(0, 0)));
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test
+    public void testKeysRoundTrip() {
+        for (CellLocation location : List.of(new CellLocation(0, 0), new CellLocation(0, 25),
+                new CellLocation(7, 3), new CellLocation(5000000, 25))) {
+            assertEquals(location, CellSet.location(CellSet.key(location)));
+        }
+    }
+
+    @Test
+    public void testContains() {
+        CellSet set = of(new CellLocation(3, 1), new CellLocation(0, 2), new CellLocation(3, 1));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(new CellLocation(3, 1)));
+        assertTrue(set.contains(new CellLocation(0, 2)));
+        assertFalse(set.contains(new CellLocation(1, 3)));
+        assertFalse(set.contains("A3"));
+    }
+
+    @Test
+    public void testBuilderGrows() {
+        CellSet.Builder builder = new CellSet.Builder();
+        Set<CellLocation> expected = new HashSet<>();
+        for (int row = 0; row < 1000; row++) {
+            for (int column = 0; column < 3; column++) {
+                CellLocation location = new CellLocation(row, column);
+                assertTrue(builder.add(CellSet.key(location)));
+                expected.add(location);
+            }
+        }
+        assertFalse(builder.add(CellSet.key(new CellLocation(500, 1))));
+        assertTrue(builder.contains(CellSet.key(new CellLocation(999, 2))));
+        assertFalse(builder.contains(CellSet.key(new CellLocation(1000, 0))));
+
+        CellSet set = builder.build();
+        assertEquals(expected, set);
+        assertEquals(expected.hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void testIteratesInRowOrder() {
+        CellSet set = of(new CellLocation(2, 0), new CellLocation(0, 1), new CellLocation(1, 0));
+        assertEquals(List.of(new CellLocation(0, 1), new CellLocation(1, 0), new CellLocation(2, 0)),
+                List.copyOf(set));
+    }
+
+    @Test
+    public void testUnmodifiable() {
+        CellSet set = of(new CellLocation(1, 1));
+        assertThrows(UnsupportedOperationException.class,
+                () -> set.add(new CellLocation(0, 0)));
+        assertThrows(UnsupportedOperationException.class,
+                () -> set.remove(new CellLocation(1, 1)));
+    }
+}
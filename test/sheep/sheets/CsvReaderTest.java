@@ -0,0 +1,134 @@
+package sheep.sheets;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    /**
+     * Records every cell and row as a string, e.g. "A0=1" and "0|2".
+     */
+    private static class Recorder implements CsvReader.Handler {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void cell(int row, int column, String content) {
+            events.add(new CellLocation(row, column) + "=" + content);
+        }
+
+        @Override
+        public void endRow(int row, int columns) {
+            events.add(row + "|" + columns);
+        }
+    }
+
+    private List<String> read(String... chunks) {
+        Recorder recorder = new Recorder();
+        CsvReader reader = new CsvReader(recorder);
+        for (String chunk : chunks) {
+            reader.read(chunk);
+        }
+        reader.finish();
+        return recorder.events;
+    }
+
+    @Test
+    public void testRows() {
+        assertEquals(List.of("A0=1", "B0=2", "0|2", "A1=3", "B1=", "C1=4", "1|3"),
+                read("1,2\n3,,4"));
+    }
+
+    @Test
+    public void testChunkBoundaries() {
+        assertEquals(read("12,A0 + 1\r\n5,6\n"), read("1", "2,A0 +", " 1\r", "\n5,", "6\n"));
+    }
+
+    @Test
+    public void testCarriageReturns() {
+        assertEquals(List.of("A0=1", "0|1", "A1=2", "1|1", "A2=3", "2|1"), read("1\r2\r\n3"));
+    }
+
+    @Test
+    public void testTrailingEmptyLinesIgnored() {
+        assertEquals(List.of("A0=1", "0|1"), read("1\n\n\n"));
+    }
+
+    @Test
+    public void testInnerEmptyLines() {
+        assertEquals(List.of("A0=1", "0|1", "A1=", "1|1", "A2=2", "2|1"), read("1\n\n2"));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(List.of("A0=", "0|1"), read(""));
+        assertEquals(List.of(), read("\n\n"));
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        // the two byte characters straddle the boundary between chunks
+        String text = "1,x" + "\u00e9".repeat(40000) + "\n" + "2,3,".repeat(40000) + "\n";
+        Recorder recorder = new Recorder();
+        new CsvReader(recorder).read(
+                Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))),
+                StandardCharsets.UTF_8);
+        assertEquals(read(text), recorder.events);
+    }
+
+    @Test
+    public void testBuffer() {
+        String text = "1,x" + "\u00e9".repeat(40000) + "\r\n\n" + "2,3,".repeat(40000) + "\n";
+        Recorder recorder = new Recorder();
+        CsvReader reader = new CsvReader(recorder);
+        reader.read(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        reader.finish();
+        assertEquals(read(text), recorder.events);
+    }
+
+    @Test
+    public void testBuffersSplitAtLineBreaks() {
+        List<String> chunks = List.of("1,2\r", "\n\n", "3,\n", "\r", "4");
+        Recorder recorder = new Recorder();
+        CsvReader reader = new CsvReader(recorder);
+        for (String chunk : chunks) {
+            reader.read(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8)),
+                    StandardCharsets.UTF_8);
+        }
+        reader.finish();
+        assertEquals(read(String.join("", chunks)), recorder.events);
+    }
+
+    @Test
+    public void testBufferCellsNotDecoded() {
+        List<String> cells = new ArrayList<>();
+        CsvReader reader = new CsvReader(new CsvReader.Handler() {
+            @Override
+            public void cell(int row, int column, String content) {
+                fail("decoded " + content);
+            }
+
+            @Override
+            public void cell(int row, int column, ByteBuffer content, Charset charset) {
+                cells.add(row + ":" + column + ":" + content.remaining());
+            }
+
+            @Override
+            public void endRow(int row, int columns) {
+            }
+        });
+        reader.read(ByteBuffer.wrap("12,,abc\n7".getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+        reader.finish();
+        assertEquals(List.of("0:0:2", "0:1:0", "0:2:3", "1:0:1"), cells);
+    }
+}
@@ -0,0 +1,91 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.Expression;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DenseCellStoreTest {
+    private DenseCellStore store;
+
+    @Before
+    public void setUp() {
+        store = new DenseCellStore(3, 2);
+    }
+
+    @Test
+    public void testUnwritten() {
+        assertFalse(store.holds(new CellLocation(0, 0)));
+        assertNull(store.formulaAt(new CellLocation(0, 0)));
+        assertNull(store.valueAt(new CellLocation(0, 0)));
+        assertNull(store.valueAt(new CellLocation(10, 10)));
+        assertTrue(store.usagesOf(new CellLocation(10, 10)).isEmpty());
+        assertFalse(store.locations().iterator().hasNext());
+    }
+
+    @Test
+    public void testWrite() {
+        Expression empty = new Nothing();
+        store.setFormula(new CellLocation(1, 1), empty);
+        store.setValue(new CellLocation(1, 1), empty);
+        assertTrue(store.holds(new CellLocation(1, 1)));
+        assertSame(empty, store.formulaAt(new CellLocation(1, 1)));
+        assertSame(empty, store.valueAt(new CellLocation(1, 1)));
+        assertTrue(store.usagesOf(new CellLocation(1, 1)).isEmpty());
+    }
+
+    @Test
+    public void testConstantValue() {
+        store.setFormula(new CellLocation(2, 0), new Nothing());
+        store.setValue(new CellLocation(2, 0), new Constant(42));
+        assertEquals(new Constant(42), store.valueAt(new CellLocation(2, 0)));
+    }
+
+    @Test
+    public void testValueReadsDoNotAllocate() {
+        Constant value = new Constant(42);
+        store.setFormula(new CellLocation(2, 0), value);
+        store.setValue(new CellLocation(2, 0), value);
+        assertSame(value, store.valueAt(new CellLocation(2, 0)));
+        assertSame(store.valueAt(new CellLocation(2, 0)), store.valueAt(new CellLocation(2, 0)));
+    }
+
+    @Test
+    public void testUsages() {
+        CellLocation a0 = new CellLocation(0, 0);
+        store.addUsage(a0, new CellLocation(1, 0));
+        store.addUsage(a0, new CellLocation(2, 1));
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(2, 1)), store.usagesOf(a0));
+        assertFalse(store.holds(a0));
+
+        store.removeUsage(a0, new CellLocation(1, 0));
+        store.removeUsage(a0, new CellLocation(2, 1));
+        assertTrue(store.usagesOf(a0).isEmpty());
+    }
+
+    @Test
+    public void testGrowKeepsCells() {
+        store.setFormula(new CellLocation(1, 1), new Constant(7));
+        store.setValue(new CellLocation(1, 1), new Constant(7));
+        store.setFormula(new CellLocation(9, 4), new Constant(8));
+        store.setValue(new CellLocation(9, 4), new Constant(8));
+        assertEquals(new Constant(7), store.valueAt(new CellLocation(1, 1)));
+        assertEquals(new Constant(8), store.valueAt(new CellLocation(9, 4)));
+        assertFalse(store.holds(new CellLocation(1, 4)));
+    }
+
+    @Test
+    public void testClear() {
+        store.setFormula(new CellLocation(1, 1), new Constant(7));
+        store.setValue(new CellLocation(1, 1), new Constant(7));
+        store.addUsage(new CellLocation(1, 1), new CellLocation(0, 0));
+        store.clear();
+        assertFalse(store.holds(new CellLocation(1, 1)));
+        assertTrue(store.usagesOf(new CellLocation(1, 1)).isEmpty());
+    }
+}
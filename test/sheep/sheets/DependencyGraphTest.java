@@ -0,0 +1,98 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DependencyGraphTest {
+    private DependencyGraph graph;
+
+    @Before
+    public void setUp() {
+        graph = new DependencyGraph();
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(graph.usagesOf(new CellLocation(0, 0)).isEmpty());
+        assertTrue(graph.referencesOf(new CellLocation(5000000, 25)).isEmpty());
+        assertFalse(graph.removeEdge(new CellLocation(0, 0), new CellLocation(1, 0)));
+    }
+
+    @Test
+    public void testEdgesInBothDirections() {
+        CellLocation a0 = new CellLocation(0, 0);
+        assertTrue(graph.addEdge(a0, new CellLocation(1, 0)));
+        assertTrue(graph.addEdge(a0, new CellLocation(2, 1)));
+        assertTrue(graph.addEdge(new CellLocation(3, 2), new CellLocation(2, 1)));
+        assertFalse(graph.addEdge(a0, new CellLocation(1, 0)));
+
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(2, 1)), graph.usagesOf(a0));
+        assertEquals(Set.of(a0, new CellLocation(3, 2)), graph.referencesOf(new CellLocation(2, 1)));
+        assertTrue(graph.usagesOf(a0).contains(new CellLocation(2, 1)));
+        assertFalse(graph.usagesOf(a0).contains(new CellLocation(3, 2)));
+        assertTrue(graph.referencesOf(a0).isEmpty());
+    }
+
+    @Test
+    public void testRemoveEdge() {
+        CellLocation a0 = new CellLocation(0, 0);
+        graph.addEdge(a0, new CellLocation(1, 0));
+        graph.addEdge(a0, new CellLocation(2, 1));
+        assertFalse(graph.removeEdge(new CellLocation(1, 0), a0));
+
+        assertTrue(graph.removeEdge(a0, new CellLocation(1, 0)));
+        assertEquals(Set.of(new CellLocation(2, 1)), graph.usagesOf(a0));
+        assertTrue(graph.referencesOf(new CellLocation(1, 0)).isEmpty());
+        assertFalse(graph.removeEdge(a0, new CellLocation(1, 0)));
+
+        assertTrue(graph.removeEdge(a0, new CellLocation(2, 1)));
+        assertTrue(graph.usagesOf(a0).isEmpty());
+        assertTrue(graph.addEdge(a0, new CellLocation(1, 0)));
+        assertEquals(Set.of(new CellLocation(1, 0)), graph.usagesOf(a0));
+    }
+
+    @Test
+    public void testViewsFollowEdits() {
+        CellLocation a0 = new CellLocation(0, 0);
+        Set<CellLocation> usages = graph.usagesOf(a0);
+        graph.addEdge(a0, new CellLocation(4, 4));
+        assertEquals(Set.of(new CellLocation(4, 4)), usages);
+        assertThrows(UnsupportedOperationException.class,
+                () -> usages.add(new CellLocation(1, 1)));
+    }
+
+    @Test
+    public void testManyNodes() {
+        CellLocation hub = new CellLocation(0, 0);
+        Set<CellLocation> expected = new HashSet<>();
+        for (int row = 1; row < 2000; row++) {
+            for (int column = 0; column < 3; column++) {
+                CellLocation usage = new CellLocation(row, column);
+                graph.addEdge(hub, usage);
+                graph.addEdge(new CellLocation(row - 1, column), usage);
+                expected.add(usage);
+            }
+        }
+        assertEquals(expected, graph.usagesOf(hub));
+        assertEquals(Set.of(hub, new CellLocation(999, 2)),
+                graph.referencesOf(new CellLocation(1000, 2)));
+        assertEquals(Set.of(new CellLocation(1000, 1)), graph.usagesOf(new CellLocation(999, 1)));
+    }
+
+    @Test
+    public void testClear() {
+        graph.addEdge(new CellLocation(1, 1), new CellLocation(0, 0));
+        graph.clear();
+        assertTrue(graph.usagesOf(new CellLocation(1, 1)).isEmpty());
+        assertTrue(graph.referencesOf(new CellLocation(0, 0)).isEmpty());
+        assertFalse(graph.removeEdge(new CellLocation(1, 1), new CellLocation(0, 0)));
+
+        graph.addEdge(new CellLocation(2, 2), new CellLocation(0, 0));
+        assertEquals(Set.of(new CellLocation(2, 2)), graph.referencesOf(new CellLocation(0, 0)));
+    }
+}
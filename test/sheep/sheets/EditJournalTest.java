@@ -0,0 +1,191 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.CoreFactory;
+import sheep.expression.ExpressionFactory;
+import sheep.parsing.SimpleParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EditJournalTest {
+    private Path snapshot;
+    private Path journal;
+
+    @Before
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("journal");
+        snapshot = directory.resolve("sheet.snapshot");
+        journal = directory.resolve("sheet.journal");
+    }
+
+    private Sheet sheet() {
+        ExpressionFactory factory = new CoreFactory();
+        return new SheetBuilder(new SimpleParser(factory), factory.createEmpty()).empty(3, 2);
+    }
+
+    @Test(timeout = 6000)
+    public void testGroupCommit() throws IOException {
+        Sheet sheet = sheet();
+        EditJournal edits = new EditJournal(snapshot, journal, 2);
+        edits.recover(sheet);
+
+        sheet.update(0, 0, "4");
+        assertEquals("", Files.readString(journal));
+        sheet.update(1, 1, "A0 + 1");
+        assertEquals(List.of("U0,0,4", "U1,1,A0 + 1"), Files.readAllLines(journal));
+
+        sheet.update(2, 0, "5");
+        edits.commit();
+        assertEquals(3, Files.readAllLines(journal).size());
+        edits.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testFailedUpdateNotRecorded() throws IOException {
+        Sheet sheet = sheet();
+        EditJournal edits = new EditJournal(snapshot, journal, 1);
+        edits.recover(sheet);
+
+        sheet.update(0, 0, "A0");
+        sheet.update(0, 1, "+");
+        assertEquals("", Files.readString(journal));
+        edits.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testRecoverReplaysJournal() throws IOException {
+        Sheet sheet = sheet();
+        EditJournal edits = new EditJournal(snapshot, journal, 16);
+        edits.recover(sheet);
+        sheet.update(0, 0, "4");
+        sheet.update(2, 1, "A0 + 1");
+        sheet.updateDimensions(4, 2);
+        sheet.update(3, 0, "B2 * 2");
+        edits.close();
+
+        Sheet recovered = sheet();
+        EditJournal again = new EditJournal(snapshot, journal, 16);
+        again.recover(recovered);
+        assertEquals(sheet.encode(), recovered.encode());
+        assertEquals("10", recovered.valueAt(3, 0).getContent());
+        again.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testRecoverReplaysClear() throws IOException {
+        Sheet sheet = sheet();
+        EditJournal edits = new EditJournal(snapshot, journal, 16);
+        edits.recover(sheet);
+        sheet.update(0, 0, "4");
+        sheet.clear();
+        sheet.update(1, 0, "3");
+        edits.close();
+
+        Sheet recovered = sheet();
+        EditJournal again = new EditJournal(snapshot, journal, 16);
+        again.recover(recovered);
+        assertEquals("|\n3|\n|", recovered.encode());
+        again.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testCheckpoint() throws IOException {
+        Sheet sheet = sheet();
+        EditJournal edits = new EditJournal(snapshot, journal, 16);
+        edits.recover(sheet);
+        sheet.update(0, 0, "4");
+        sheet.update(1, 1, "A0");
+        edits.checkpoint();
+        assertEquals("4|\n|A0\n|", Files.readString(snapshot));
+        assertEquals(0, Files.size(journal));
+
+        sheet.update(2, 0, "7");
+        edits.close();
+
+        Sheet recovered = sheet();
+        EditJournal again = new EditJournal(snapshot, journal, 16);
+        again.recover(recovered);
+        assertEquals(sheet.encode(), recovered.encode());
+        assertEquals("4", recovered.valueAt(1, 1).getContent());
+        again.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testCheckpointOnUpdate() throws IOException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .persistentStorage()
+                .empty(3, 2);
+        EditJournal edits = new EditJournal(snapshot, journal, 1, 1);
+        edits.recover(sheet);
+        sheet.update(0, 0, "4");
+        // the update committed itself and grew the journal past the checkpoint size
+        assertEquals("4|\n|\n|", Files.readString(snapshot));
+        assertEquals(0, Files.size(journal));
+
+        sheet.update(1, 1, "A0");
+        assertEquals("4|\n|A0\n|", Files.readString(snapshot));
+        edits.close();
+
+        Sheet recovered = sheet();
+        EditJournal again = new EditJournal(snapshot, journal, 16);
+        again.recover(recovered);
+        assertEquals(sheet.encode(), recovered.encode());
+        again.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testUndoCommitted() throws IOException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .persistentStorage()
+                .empty(3, 2);
+        EditJournal edits = new EditJournal(snapshot, journal, 1);
+        edits.recover(sheet);
+        sheet.update(0, 0, "4");
+        sheet.update(1, 0, "5");
+        assertTrue(sheet.undo());
+        // the undo is written as soon as it completes, without a commit
+        Sheet recovered = sheet();
+        EditJournal again = new EditJournal(snapshot, journal, 1);
+        again.recover(recovered);
+        assertEquals("4|\n|\n|", recovered.encode());
+        again.close();
+        edits.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testReplayOverNewerSnapshot() throws IOException {
+        Files.writeString(snapshot, "4|\n|A0\n|");
+        Files.writeString(journal, "U0,0,4\nU1,1,A0\n");
+
+        Sheet recovered = sheet();
+        EditJournal edits = new EditJournal(snapshot, journal, 16);
+        edits.recover(recovered);
+        assertEquals("4|\n|A0\n|", recovered.encode());
+        edits.close();
+    }
+
+    @Test(timeout = 6000)
+    public void testTornRecordSkipped() throws IOException {
+        Files.writeString(journal, "U0,0,4\nU1,");
+
+        Sheet recovered = sheet();
+        EditJournal edits = new EditJournal(snapshot, journal, 16);
+        edits.recover(recovered);
+        assertEquals("4|\n|\n|", recovered.encode());
+        edits.close();
+    }
+
+    @Test
+    public void testInvalidGroupSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EditJournal(snapshot, journal, 0));
+    }
+}
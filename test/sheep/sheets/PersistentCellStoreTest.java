@@ -0,0 +1,124 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.basic.Constant;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PersistentCellStoreTest {
+    private PersistentCellStore store;
+
+    @Before
+    public void setUp() {
+        store = new PersistentCellStore();
+    }
+
+    private void write(CellLocation location, long value) {
+        store.setFormula(location, new Constant(value));
+        store.setValue(location, new Constant(value));
+    }
+
+    @Test
+    public void testUnwritten() {
+        assertFalse(store.holds(new CellLocation(0, 0)));
+        assertNull(store.formulaAt(new CellLocation(5000000, 3)));
+        assertNull(store.valueAt(new CellLocation(5000000, 3)));
+        assertTrue(store.usagesOf(new CellLocation(5000000, 3)).isEmpty());
+        assertFalse(store.locations().iterator().hasNext());
+    }
+
+    @Test
+    public void testWriteAcrossLevels() {
+        write(new CellLocation(0, 0), 1);
+        write(new CellLocation(31, 7), 2);
+        write(new CellLocation(32, 8), 3);
+        write(new CellLocation(4000000, 25), 4);
+
+        assertEquals(new Constant(1), store.valueAt(new CellLocation(0, 0)));
+        assertEquals(new Constant(2), store.valueAt(new CellLocation(31, 7)));
+        assertEquals(new Constant(3), store.valueAt(new CellLocation(32, 8)));
+        assertEquals(new Constant(4), store.formulaAt(new CellLocation(4000000, 25)));
+        assertFalse(store.holds(new CellLocation(32, 7)));
+        assertFalse(store.holds(new CellLocation(0, 20)));
+
+        Set<CellLocation> locations = new HashSet<>();
+        store.locations().forEach(locations::add);
+        assertEquals(Set.of(new CellLocation(0, 0), new CellLocation(31, 7),
+                new CellLocation(32, 8), new CellLocation(4000000, 25)), locations);
+    }
+
+    @Test
+    public void testVersionUnchangedByWrites() {
+        write(new CellLocation(3, 1), 1);
+        PersistentCellStore.Version first = store.version();
+        write(new CellLocation(3, 1), 2);
+        write(new CellLocation(70000, 0), 3);
+        PersistentCellStore.Version second = store.version();
+
+        store.restore(first);
+        assertEquals(new Constant(1), store.formulaAt(new CellLocation(3, 1)));
+        assertFalse(store.holds(new CellLocation(70000, 0)));
+
+        store.restore(second);
+        assertEquals(new Constant(2), store.valueAt(new CellLocation(3, 1)));
+        assertEquals(new Constant(3), store.valueAt(new CellLocation(70000, 0)));
+    }
+
+    @Test
+    public void testWritesWithinVersionShareCopies() {
+        PersistentCellStore.Version empty = store.version();
+        write(new CellLocation(0, 0), 1);
+        write(new CellLocation(0, 1), 2);
+        PersistentCellStore.Version written = store.version();
+        write(new CellLocation(0, 2), 3);
+
+        store.restore(written);
+        assertFalse(store.holds(new CellLocation(0, 2)));
+        store.restore(empty);
+        assertFalse(store.holds(new CellLocation(0, 0)));
+    }
+
+    @Test
+    public void testChangedFormulas() {
+        write(new CellLocation(0, 0), 1);
+        write(new CellLocation(40, 2), 2);
+        PersistentCellStore.Version before = store.version();
+        write(new CellLocation(40, 2), 3);
+        store.setValue(new CellLocation(0, 0), new Constant(9));
+        write(new CellLocation(2000, 4), 4);
+        PersistentCellStore.Version after = store.version();
+
+        assertEquals(List.of(new CellLocation(40, 2), new CellLocation(2000, 4)),
+                store.changedFormulas(before, after));
+        assertEquals(List.of(new CellLocation(40, 2), new CellLocation(2000, 4)),
+                store.changedFormulas(after, before));
+        assertTrue(store.changedFormulas(after, after).isEmpty());
+    }
+
+    @Test
+    public void testUsages() {
+        CellLocation b2 = new CellLocation(2, 1);
+        store.addUsage(b2, new CellLocation(100, 0));
+        assertEquals(Set.of(new CellLocation(100, 0)), store.usagesOf(b2));
+        assertFalse(store.holds(b2));
+
+        store.removeUsage(b2, new CellLocation(100, 0));
+        assertTrue(store.usagesOf(b2).isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        write(new CellLocation(10, 2), 5);
+        PersistentCellStore.Version written = store.version();
+        store.clear();
+        assertFalse(store.holds(new CellLocation(10, 2)));
+
+        store.restore(written);
+        assertTrue(store.holds(new CellLocation(10, 2)));
+    }
+}
@@ -8,6 +8,7 @@ import sheep.expression.TypeError;
 import sheep.parsing.Parser;
 
 import java.util.HashMap;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
@@ -44,4 +45,40 @@ public class SheetBuilderTest {
         assertEquals("Ref(dood)", sheet.formulaAt(1, 1).getContent());
         assertEquals("Value(3490524077)", sheet.valueAt(1, 1).getContent());
     }
+
+    @Test
+    public void testDenseStorage() throws TypeError {
+        Sheet sheet = base.denseStorage().empty(5, 3);
+        sheet.update(new CellLocation(0, 2), new FormulaExpr("AtC0"));
+        sheet.update(new CellLocation(4, 0), new RefExpr("C0"));
+        assertEquals("Value(AtC0)", sheet.valueAt(4, 0).getContent());
+        assertEquals("Formula(Default)", sheet.formulaAt(4, 2).getContent());
+    }
+
+    @Test
+    public void testSparseStorage() throws TypeError {
+        Sheet sheet = base.sparseStorage().empty(1000000, 3);
+        sheet.update(new CellLocation(999999, 2), new FormulaExpr("Last"));
+        sheet.update(new CellLocation(0, 0), new RefExpr("C999999"));
+        assertEquals("Value(Last)", sheet.valueAt(0, 0).getContent());
+        assertEquals("Formula(Default)", sheet.formulaAt(500000, 1).getContent());
+    }
+
+    @Test
+    public void testShrinkRemembersCells() throws TypeError {
+        for (SheetBuilder builder : List.of(
+                new SheetBuilder(new EchoParser(), new FormulaExpr("Default")),
+                new SheetBuilder(new EchoParser(), new FormulaExpr("Default")).denseStorage(),
+                new SheetBuilder(new EchoParser(), new FormulaExpr("Default")).sparseStorage())) {
+            Sheet sheet = builder.empty(5, 3);
+            sheet.update(new CellLocation(4, 2), new FormulaExpr("Remembered"));
+            sheet.updateDimensions(2, 2);
+            sheet.updateDimensions(5, 3);
+            assertEquals("Formula(Remembered)", sheet.formulaAt(4, 2).getContent());
+            assertEquals("Formula(Default)", sheet.formulaAt(4, 1).getContent());
+
+            sheet.clear();
+            assertEquals("Formula(Default)", sheet.formulaAt(4, 2).getContent());
+        }
+    }
 }
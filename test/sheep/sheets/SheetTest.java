@@ -4,15 +4,25 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
+import sheep.core.UpdateBatch;
 import sheep.core.UpdateResponse;
 import sheep.core.ViewElement;
+import sheep.expression.CoreFactory;
 import sheep.expression.Expression;
+import sheep.expression.ExpressionFactory;
 import sheep.expression.TypeError;
 import sheep.expression.basic.Reference;
 import sheep.parsing.ParseException;
 import sheep.parsing.Parser;
+import sheep.parsing.SimpleParser;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 import static org.junit.Assert.*;
@@ -338,6 +348,89 @@ public class SheetTest {
         assertEquals("Value(NewValue)", base.valueAt(0, 0).getContent());
     }
 
+    @Test(timeout = 6000)
+    public void testUpdateDependantTypeErrorRollsBack() throws TypeError {
+        establishChainCell();
+        base.update(new CellLocation(1, 0), new RefExpr("C0") {
+            @Override
+            public Expression value(Map<String, Expression> state) throws TypeError {
+                if (state.get("C0").equals(new ValueExpr("Bad"))) {
+                    throw new TypeError();
+                }
+                return super.value(state);
+            }
+        });
+
+        try {
+            base.update(new CellLocation(0, 2), new FormulaExpr("Bad"));
+            fail("Expected a type error from a dependant cell");
+        } catch (TypeError expected) {
+            // the sheet should be unchanged
+        }
+
+        assertEquals("Formula(AtC0)", base.formulaAt(0, 2).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(0, 2).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(0, 1).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(0, 0).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(1, 0).getContent());
+    }
+
+    /**
+     * Builds a ladder of diamonds, where each A cell is the sum of the B and C
+     * cells in its row, both of which refer to the A cell of the previous row.
+     * Asserts that updating A0 evaluates every affected cell exactly once.
+     */
+    @Test(timeout = 6000)
+    public void testUpdateDiamondsEvaluatedOnce() {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(20, 3);
+        assertTrue(sheet.update(0, 0, "1").isSuccess());
+        for (int row = 1; row < 20; row++) {
+            assertTrue(sheet.update(row, 1, "A" + (row - 1)).isSuccess());
+            assertTrue(sheet.update(row, 2, "A" + (row - 1)).isSuccess());
+            assertTrue(sheet.update(row, 0, "B" + row + " + C" + row).isSuccess());
+        }
+
+        long before = sheet.getEvaluationCount();
+        assertTrue(sheet.update(0, 0, "2").isSuccess());
+        assertEquals(1 + 3 * 19, sheet.getEvaluationCount() - before);
+        assertEquals("" + (2L << 19), sheet.valueAt(19, 0).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testUpdateSelfReference() {
+        UpdateResponse response = base.update(1, 1, "->B1");
+        assertFalse(response.isSuccess());
+        assertEquals("Circular reference: B1 -> B1", response.getMessage());
+        assertEquals("Formula(Default)", base.formulaAt(1, 1).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testUpdateReferenceLoop() {
+        establishChain();
+
+        UpdateResponse response = base.update(0, 2, "->A0");
+        assertFalse(response.isSuccess());
+        assertEquals("Circular reference: C0 -> A0 -> B0 -> C0", response.getMessage());
+
+        assertEquals("Formula(AtC0)", base.formulaAt(0, 2).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(0, 0).getContent());
+        assertTrue(base.usedBy(new CellLocation(0, 0)).isEmpty());
+    }
+
+    @Test(timeout = 6000)
+    public void testUpdateReferenceLoopCycle() throws TypeError {
+        establishChain();
+        try {
+            base.update(new CellLocation(0, 2), new RefExpr("B0"));
+            fail("Expected a circular reference");
+        } catch (CircularReference e) {
+            assertEquals(List.of(new CellLocation(0, 2), new CellLocation(0, 1),
+                    new CellLocation(0, 2)), e.getCycle());
+        }
+    }
+
     @Test(timeout = 6000)
     public void testUpdateTypeError() {
         UpdateResponse response = base.update(1, 2, SpecialStrings.ThrowTypeError.label);
@@ -372,6 +465,494 @@ public class SheetTest {
         assertEquals("Value(AtA1)", base.valueAt(2, 2).getContent());
     }
 
+    /**
+     * Asserts that a batch is evaluated in dependency order,
+     * regardless of the order in which its cells were added.
+     */
+    @Test(timeout = 6000)
+    public void testUpdateAllDependencyOrder() {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(5, 3);
+        UpdateBatch batch = new UpdateBatch()
+                .add(2, 0, "A1 + B0")
+                .add(1, 0, "A0 * 2")
+                .add(0, 0, "3")
+                .add(0, 1, "A0 + 1");
+        long before = sheet.getEvaluationCount();
+        assertTrue(sheet.updateAll(batch).isSuccess());
+        assertEquals(4, sheet.getEvaluationCount() - before);
+        assertEquals("10", sheet.valueAt(2, 0).getContent());
+
+        // a later batch recalculates the existing usages once
+        before = sheet.getEvaluationCount();
+        assertTrue(sheet.updateAll(new UpdateBatch().add(0, 0, "1").add(0, 2, "A2")).isSuccess());
+        assertEquals(5, sheet.getEvaluationCount() - before);
+        assertEquals("4", sheet.valueAt(0, 2).getContent());
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(0, 1),
+                new CellLocation(2, 0), new CellLocation(0, 2)), sheet.usedBy(new CellLocation(0, 0)));
+    }
+
+    @Test(timeout = 6000)
+    public void testUpdateAllParseError() {
+        UpdateBatch batch = new UpdateBatch()
+                .add(0, 0, "First")
+                .add(1, 1, SpecialStrings.ThrowParseException.label);
+        UpdateResponse response = base.updateAll(batch);
+        assertFalse(response.isSuccess());
+        assertEquals("Unable to parse: " + SpecialStrings.ThrowParseException.label, response.getMessage());
+        assertEquals("Formula(Default)", base.formulaAt(0, 0).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testUpdateAllTypeErrorRollsBack() {
+        establishChain();
+        UpdateBatch batch = new UpdateBatch()
+                .add(0, 2, "Changed")
+                .add(1, 2, SpecialStrings.ThrowTypeError.label);
+        UpdateResponse response = base.updateAll(batch);
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().startsWith("Type error: sheep.expression.TypeError"));
+        assertEquals("Formula(AtC0)", base.formulaAt(0, 2).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(0, 0).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testUpdateAllReferenceLoop() {
+        UpdateBatch batch = new UpdateBatch()
+                .add(0, 0, "->B0")
+                .add(0, 1, "->C0")
+                .add(0, 2, "->A0");
+        UpdateResponse response = base.updateAll(batch);
+        assertFalse(response.isSuccess());
+        assertEquals("Circular reference: A0 -> B0 -> C0 -> A0", response.getMessage());
+        assertEquals("Formula(Default)", base.formulaAt(0, 0).getContent());
+        assertTrue(base.usedBy(new CellLocation(0, 1)).isEmpty());
+    }
+
+    /**
+     * Asserts that replacing a reference within a batch removes its old usage,
+     * so that a loop through the old formula is not reported.
+     */
+    @Test(timeout = 6000)
+    public void testUpdateAllReplacesUsages() {
+        establishChain();
+        UpdateBatch batch = new UpdateBatch()
+                .add(0, 1, "Unlinked")
+                .add(0, 2, "->A0");
+        assertTrue(base.updateAll(batch).isSuccess());
+        assertEquals("Value(Unlinked)", base.valueAt(0, 2).getContent());
+        assertEquals(Set.of(new CellLocation(0, 2)), base.usedBy(new CellLocation(0, 0)));
+        assertTrue(base.usedBy(new CellLocation(0, 2)).isEmpty());
+    }
+
+    @Test(timeout = 6000)
+    public void testLoadFromCSV() {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(2, 2);
+        sheet.loadFromCSV("1,A0 + 1,\n5,O_O,B0");
+        assertEquals(2, sheet.getRows());
+        assertEquals(3, sheet.getColumns());
+        assertEquals("2", sheet.valueAt(0, 1).getContent());
+        assertEquals("", sheet.valueAt(0, 2).getContent());
+        assertEquals("", sheet.valueAt(1, 1).getContent());
+        assertEquals("2", sheet.valueAt(1, 2).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testLoadFromCSVChannel() throws IOException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(2, 2);
+        byte[] csv = "1,A0 + 1,\r\n5,O_O,B0\r\n".getBytes(StandardCharsets.UTF_8);
+        sheet.loadFromCSV(Channels.newChannel(new ByteArrayInputStream(csv)), StandardCharsets.UTF_8);
+        assertEquals(2, sheet.getRows());
+        assertEquals(3, sheet.getColumns());
+        assertEquals("2", sheet.valueAt(0, 1).getContent());
+        assertEquals("2", sheet.valueAt(1, 2).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testWriteCSV() throws IOException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(2, 3);
+        assertTrue(sheet.update(0, 0, "4").isSuccess());
+        assertTrue(sheet.update(1, 2, "A0 * 2").isSuccess());
+
+        String newline = System.lineSeparator();
+        String expected = "4,," + newline + ",,8" + newline;
+        assertEquals(expected, sheet.toCSV());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sheet.writeCSV(Channels.newChannel(bytes), StandardCharsets.UTF_8);
+        assertEquals(expected, bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test(timeout = 6000)
+    public void testWritePersistentCSV() throws IOException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .persistentStorage()
+                .empty(2, 2);
+        assertTrue(sheet.update(1, 0, "3").isSuccess());
+        String newline = System.lineSeparator();
+        assertEquals("," + newline + "3," + newline, sheet.toCSV());
+        sheet.edit(() -> assertEquals("," + newline + "3," + newline, sheet.toCSV()));
+    }
+
+    @Test(timeout = 6000)
+    public void testSnapshotIsolated() {
+        establishChain();
+        SheetSnapshot snapshot = base.snapshot();
+
+        assertTrue(base.update(0, 2, "Changed").isSuccess());
+        base.updateDimensions(10, 10);
+
+        assertEquals(5, snapshot.getRows());
+        assertEquals(3, snapshot.getColumns());
+        assertEquals("Formula(AtC0)", snapshot.formulaAt(new CellLocation(0, 2)).render());
+        assertEquals("Value(AtC0)", snapshot.valueAt(new CellLocation(0, 0)).render());
+        assertEquals("Formula(Default)", snapshot.formulaAt(new CellLocation(4, 2)).render());
+    }
+
+    @Test(timeout = 6000)
+    public void testPersistentSnapshotIsolated() {
+        base = persistent();
+        testSnapshotIsolated();
+        SheetSnapshot snapshot = base.snapshot();
+        assertEquals(10, snapshot.getRows());
+        assertEquals("Formula(Changed)", snapshot.formulaAt(new CellLocation(0, 2)).render());
+        assertEquals("Formula(Default)", snapshot.formulaAt(new CellLocation(9, 9)).render());
+    }
+
+    private Sheet persistent() {
+        return new Sheet(new EchoParser(), new HashMap<>(), new FormulaExpr("Default"), 5, 3,
+                new PersistentCellStore());
+    }
+
+    @Test(timeout = 6000)
+    public void testUndoWithoutHistory() {
+        assertTrue(base.update(0, 0, "AtC0").isSuccess());
+        assertFalse(base.undo());
+        assertFalse(base.redo());
+    }
+
+    @Test(timeout = 6000)
+    public void testUndoRedo() {
+        base = persistent();
+        establishChain();
+        assertTrue(base.update(0, 2, "Changed").isSuccess());
+        assertEquals("Value(Changed)", base.valueAt(0, 0).getContent());
+
+        assertTrue(base.undo());
+        assertEquals("Formula(AtC0)", base.formulaAt(0, 2).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(0, 0).getContent());
+        assertTrue(base.undo());
+        assertEquals("Formula(Default)", base.formulaAt(0, 0).getContent());
+        assertEquals("Value(AtC0)", base.valueAt(0, 1).getContent());
+
+        assertTrue(base.redo());
+        assertTrue(base.redo());
+        assertEquals("Value(Changed)", base.valueAt(0, 0).getContent());
+        assertFalse(base.redo());
+    }
+
+    @Test(timeout = 6000)
+    public void testUndoRestoresUsages() {
+        base = persistent();
+        establishChain();
+        assertTrue(base.update(0, 1, "Unrelated").isSuccess());
+        assertTrue(base.undo());
+
+        // B0 refers to C0 again, so updating C0 reaches A0
+        assertTrue(base.update(0, 2, "Again").isSuccess());
+        assertEquals("Value(Again)", base.valueAt(0, 0).getContent());
+        assertEquals(Set.of(new CellLocation(0, 0), new CellLocation(0, 1)),
+                base.usedBy(new CellLocation(0, 2)));
+    }
+
+    @Test(timeout = 6000)
+    public void testEditClearsRedo() {
+        base = persistent();
+        assertTrue(base.update(0, 0, "First").isSuccess());
+        assertTrue(base.undo());
+        assertTrue(base.update(1, 1, "Second").isSuccess());
+        assertFalse(base.redo());
+        assertEquals("Formula(Default)", base.formulaAt(0, 0).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testUndoResizeAndClear() {
+        base = persistent();
+        assertTrue(base.update(4, 2, "Corner").isSuccess());
+        base.updateDimensions(2, 2);
+        base.clear();
+
+        assertTrue(base.undo());
+        assertEquals(2, base.getRows());
+        assertTrue(base.undo());
+        assertEquals(5, base.getRows());
+        assertEquals(3, base.getColumns());
+        assertEquals("Formula(Corner)", base.formulaAt(4, 2).getContent());
+        assertTrue(base.undo());
+        assertEquals("Formula(Default)", base.formulaAt(4, 2).getContent());
+        assertFalse(base.undo());
+    }
+
+    @Test(timeout = 6000)
+    public void testUndoBatchIsOneEdit() {
+        base = persistent();
+        UpdateBatch batch = new UpdateBatch()
+                .add(0, 0, "->B0")
+                .add(0, 1, "AtB0");
+        assertTrue(base.updateAll(batch).isSuccess());
+        assertTrue(base.undo());
+        assertEquals("Formula(Default)", base.formulaAt(0, 0).getContent());
+        assertEquals("Formula(Default)", base.formulaAt(0, 1).getContent());
+        assertFalse(base.undo());
+    }
+
+    @Test(timeout = 6000)
+    public void testUntrackedEditsNotUndone() {
+        base = persistent();
+        assertTrue(base.update(0, 0, "First").isSuccess());
+        base.untracked(() -> {
+            assertTrue(base.update(1, 0, "Moved").isSuccess());
+            // the edits read the sheet as they leave it
+            assertEquals("Formula(Moved)", base.formulaAt(1, 0).getContent());
+            assertTrue(base.update(2, 0, "Again").isSuccess());
+        });
+        assertEquals("Formula(Again)", base.formulaAt(2, 0).getContent());
+
+        assertTrue(base.undo());
+        assertEquals("Formula(Default)", base.formulaAt(0, 0).getContent());
+        assertEquals("Formula(Default)", base.formulaAt(1, 0).getContent());
+        assertFalse(base.undo());
+        assertTrue(base.redo());
+        assertEquals("Formula(First)", base.formulaAt(0, 0).getContent());
+        assertEquals("Formula(Again)", base.formulaAt(2, 0).getContent());
+    }
+
+    /**
+     * Fills every cell with the same number in each of many batches
+     * while another thread encodes the sheet,
+     * asserting that every encoding sees a single batch.
+     */
+    private void assertReadsSeeCompleteEdits(Sheet sheet) throws InterruptedException {
+        int rows = sheet.getRows();
+        int columns = sheet.getColumns();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread writer = new Thread(() -> {
+            for (int generation = 1; generation <= 300; generation++) {
+                UpdateBatch batch = new UpdateBatch();
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        batch.add(row, column, String.valueOf(generation));
+                    }
+                }
+                if (!sheet.updateAll(batch).isSuccess()) {
+                    failures.add("update failed");
+                }
+            }
+        });
+        writer.start();
+        long version = 0;
+        while (writer.isAlive()) {
+            long seen = sheet.getVersion();
+            if (seen < version) {
+                failures.add("version went backwards");
+            }
+            version = seen;
+            Set<String> cells = new HashSet<>(Arrays.asList(sheet.encode().split("[|\n]", -1)));
+            if (cells.size() != 1) {
+                failures.add(cells.toString());
+            }
+        }
+        writer.join();
+        assertEquals(List.of(), failures);
+        assertEquals("300", sheet.valueAt(rows - 1, columns - 1).getContent());
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentReadsPublished() throws InterruptedException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .persistentStorage()
+                .empty(40, 5);
+        assertReadsSeeCompleteEdits(sheet);
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentReadsLocked() throws InterruptedException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(40, 5);
+        assertReadsSeeCompleteEdits(sheet);
+    }
+
+    @Test(timeout = 6000)
+    public void testVersionIncreasesWithEdits() {
+        long before = base.getVersion();
+        assertTrue(base.update(0, 0, "AtC0").isSuccess());
+        assertTrue(base.getVersion() > before);
+        before = base.getVersion();
+        assertFalse(base.update(0, 0, "->A0").isSuccess());
+        assertEquals(before, base.getVersion());
+    }
+
+    /**
+     * Four levels of dependants of A0, each level as tall as the sheet.
+     */
+    private UpdateBatch layeredFormulas(int rows) {
+        UpdateBatch batch = new UpdateBatch().add(0, 0, "1");
+        for (int row = 0; row < rows; row++) {
+            batch.add(row, 1, "A0 + " + row)
+                    .add(row, 2, "B" + row + " * 2")
+                    .add(row, 3, "C" + row + " + B" + row)
+                    .add(row, 4, "D" + row + " - A0");
+        }
+        return batch;
+    }
+
+    @Test(timeout = 20000)
+    public void testParallelRecalculation() {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sequential = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .empty(300, 5);
+        Sheet parallel = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .parallelRecalculation(new ForkJoinPool(4))
+                .empty(300, 5);
+        assertTrue(sequential.updateAll(layeredFormulas(300)).isSuccess());
+        assertTrue(parallel.updateAll(layeredFormulas(300)).isSuccess());
+
+        long sequentialBefore = sequential.getEvaluationCount();
+        long parallelBefore = parallel.getEvaluationCount();
+        assertTrue(sequential.update(0, 0, "5").isSuccess());
+        assertTrue(parallel.update(0, 0, "5").isSuccess());
+
+        assertEquals(sequential.toCSV(), parallel.toCSV());
+        assertEquals(sequential.getEvaluationCount() - sequentialBefore,
+                parallel.getEvaluationCount() - parallelBefore);
+        // ((5 + 299) * 2 + (5 + 299)) - 5
+        assertEquals("907", parallel.valueAt(299, 4).getContent());
+    }
+
+    @Test(timeout = 20000)
+    public void testParallelRecalculationTypeError() {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet parallel = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .parallelRecalculation(new ForkJoinPool(4))
+                .empty(300, 5);
+        assertTrue(parallel.updateAll(layeredFormulas(300)).isSuccess());
+        String before = parallel.toCSV();
+
+        UpdateResponse response = parallel.update(0, 0, "");
+        assertFalse(response.isSuccess());
+        assertTrue(response.getMessage().startsWith("Type error: "));
+        assertEquals(before, parallel.toCSV());
+    }
+
+    private Map<CellLocation, Expression> parseAll(Parser parser, UpdateBatch batch)
+            throws ParseException {
+        Map<CellLocation, Expression> cells = new LinkedHashMap<>();
+        for (UpdateBatch.Entry entry : batch.entries()) {
+            cells.put(CellLocation.of(entry.getRow(), entry.getColumn()),
+                    parser.parse(entry.getInput()));
+        }
+        return cells;
+    }
+
+    @Test(timeout = 20000)
+    public void testRecalculateAll() throws TypeError {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .parallelRecalculation(new ForkJoinPool(4))
+                .empty(300, 5);
+        assertTrue(sheet.updateAll(layeredFormulas(300)).isSuccess());
+        String before = sheet.toCSV();
+        long evaluations = sheet.getEvaluationCount();
+
+        Recalculation recalculation = sheet.recalculateAll();
+        assertEquals(1 + 300 * 4, recalculation.getCells());
+        assertEquals(5, recalculation.getLevels());
+        assertTrue(recalculation.getCellsPerSecond() > 0);
+        assertEquals(evaluations + recalculation.getCells(), sheet.getEvaluationCount());
+        assertEquals(before, sheet.toCSV());
+    }
+
+    @Test(timeout = 20000)
+    public void testLoadCellsRecalculatesLargeLoads() throws ParseException {
+        ExpressionFactory factory = new CoreFactory();
+        Parser parser = new SimpleParser(factory);
+        Sheet updated = new SheetBuilder(parser, factory.createEmpty()).empty(300, 5);
+        assertTrue(updated.updateAll(layeredFormulas(300)).isSuccess());
+
+        Sheet loaded = new SheetBuilder(parser, factory.createEmpty()).empty(1, 1);
+        loaded.loadCells(300, 5, parseAll(parser, layeredFormulas(300)));
+        assertEquals(updated.toCSV(), loaded.toCSV());
+        assertEquals(Set.of(new CellLocation(0, 3), new CellLocation(0, 4)),
+                loaded.usedBy(new CellLocation(0, 2)));
+    }
+
+    @Test(timeout = 20000)
+    public void testLoadCellsLargeLoopFallsBack() throws ParseException {
+        ExpressionFactory factory = new CoreFactory();
+        Parser parser = new SimpleParser(factory);
+        UpdateBatch batch = layeredFormulas(300).add(299, 0, "A299 + 1");
+
+        Sheet loaded = new SheetBuilder(parser, factory.createEmpty()).empty(1, 1);
+        loaded.loadCells(300, 5, parseAll(parser, batch));
+        // the looping cell is left unchanged, every other cell is loaded
+        assertEquals("", loaded.formulaAt(299, 0).getContent());
+        // ((1 + 299) * 2 + (1 + 299)) - 1
+        assertEquals("899", loaded.valueAt(299, 4).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testLoadIsOneEdit() throws IOException {
+        ExpressionFactory factory = new CoreFactory();
+        Sheet sheet = new SheetBuilder(new SimpleParser(factory), factory.createEmpty())
+                .persistentStorage()
+                .empty(2, 2);
+        assertTrue(sheet.update(1, 1, "7").isSuccess());
+        long before = sheet.getVersion();
+
+        byte[] csv = "1,A0 + 1,\n5,O_O,B0\n".getBytes(StandardCharsets.UTF_8);
+        sheet.loadFromCSV(Channels.newChannel(new ByteArrayInputStream(csv)), StandardCharsets.UTF_8,
+                4, 3);
+        assertEquals(before + 1, sheet.getVersion());
+        assertEquals(4, sheet.getRows());
+        assertEquals("2", sheet.valueAt(1, 2).getContent());
+        assertEquals("", sheet.valueAt(1, 1).getContent());
+
+        assertTrue(sheet.undo());
+        assertEquals(2, sheet.getRows());
+        assertEquals(2, sheet.getColumns());
+        assertEquals("7", sheet.valueAt(1, 1).getContent());
+        assertEquals("", sheet.valueAt(0, 0).getContent());
+    }
+
+    @Test(timeout = 6000)
+    public void testLoadFallbackIsOneEdit() throws ParseException {
+        ExpressionFactory factory = new CoreFactory();
+        Parser parser = new SimpleParser(factory);
+        Sheet sheet = new SheetBuilder(parser, factory.createEmpty())
+                .persistentStorage()
+                .empty(1, 1);
+        UpdateBatch batch = new UpdateBatch().add(0, 0, "1").add(1, 0, "A0 + 1").add(2, 0, "A2");
+        long before = sheet.getVersion();
+        sheet.loadCells(3, 1, parseAll(parser, batch));
+        assertEquals(before + 1, sheet.getVersion());
+        assertEquals("2", sheet.valueAt(1, 0).getContent());
+
+        assertTrue(sheet.undo());
+        assertEquals(1, sheet.getRows());
+        assertEquals("", sheet.valueAt(0, 0).getContent());
+        assertFalse(sheet.undo());
+    }
+
     private void establishChain() {
         UpdateResponse response = base.update(0, 2, "AtC0");
         assertTrue(response.isSuccess());
@@ -506,4 +1087,106 @@ public class SheetTest {
                 )),
                 base.usedBy(new CellLocation(4, 0)));
     }
+
+    /**
+     * A formula which depends on each of the given cells.
+     */
+    private static Expression refersTo(String... references) {
+        return new FormulaExpr(String.join("+", references)) {
+            @Override
+            public Set<String> dependencies() {
+                return new HashSet<>(List.of(references));
+            }
+        };
+    }
+
+    /**
+     * Every cell but C4 refers to C4 and to the next cell in a chain through the sheet,
+     * so many cells which use C4 are also reached through an earlier usage.
+     * Asserts that usedBy for C4 finds every other cell regardless of the order it visits them.
+     */
+    @Test
+    public void testUsedByVisitsEveryUsage() throws TypeError {
+        Set<CellLocation> expected = new HashSet<>();
+        for (int row = 0; row < 5; row++) {
+            for (int column = 0; column < 3; column++) {
+                if (row == 4 && column == 2) {
+                    continue;
+                }
+                int next = row * 3 + column + 1;
+                String chain = new CellLocation(next / 3, next % 3).toString();
+                base.update(new CellLocation(row, column), refersTo("C4", chain));
+                expected.add(new CellLocation(row, column));
+            }
+        }
+        assertEquals(expected, base.usedBy(new CellLocation(4, 2)));
+        assertEquals(expected, base.usedBy(new CellLocation(4, 2)));
+    }
+
+    /**
+     * Asserts that a cached result of usedBy is not returned once an edit changes the usages,
+     * both for the edited reference and for the cells which transitively use it.
+     */
+    @Test
+    public void testUsedByAfterEdit() throws TypeError {
+        base.update(new CellLocation(1, 0), new Reference("A3"));
+        base.update(new CellLocation(3, 0), new Reference("A4"));
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(3, 0)),
+                base.usedBy(new CellLocation(4, 0)));
+        assertEquals(Set.of(new CellLocation(1, 0)), base.usedBy(new CellLocation(3, 0)));
+
+        base.update(new CellLocation(2, 0), new Reference("A3"));
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(2, 0),
+                new CellLocation(3, 0)), base.usedBy(new CellLocation(4, 0)));
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(2, 0)),
+                base.usedBy(new CellLocation(3, 0)));
+
+        base.update(new CellLocation(3, 0), new FormulaExpr("Unlinked"));
+        assertTrue(base.usedBy(new CellLocation(4, 0)).isEmpty());
+        assertEquals(Set.of(new CellLocation(1, 0), new CellLocation(2, 0)),
+                base.usedBy(new CellLocation(3, 0)));
+
+        base.clear();
+        assertTrue(base.usedBy(new CellLocation(3, 0)).isEmpty());
+    }
+
+    /**
+     * Asserts that usedBy reflects the usages restored by undo and redo.
+     */
+    @Test(timeout = 6000)
+    public void testUsedByAfterUndo() throws TypeError {
+        base = persistent();
+        base.update(new CellLocation(3, 0), new Reference("A4"));
+        base.update(new CellLocation(2, 0), new Reference("A3"));
+        assertEquals(Set.of(new CellLocation(2, 0), new CellLocation(3, 0)),
+                base.usedBy(new CellLocation(4, 0)));
+
+        assertTrue(base.undo());
+        assertEquals(Set.of(new CellLocation(3, 0)), base.usedBy(new CellLocation(4, 0)));
+        assertTrue(base.redo());
+        assertEquals(Set.of(new CellLocation(2, 0), new CellLocation(3, 0)),
+                base.usedBy(new CellLocation(4, 0)));
+    }
+
+    /**
+     * Inserts a reference to A4 at A0, shrinks the sheet so that A4 is out of bounds,
+     * then replaces the reference.
+     * Asserts that A0 no longer uses A4 once the sheet grows again.
+     */
+    @Test
+    public void testUsageRemovedOutOfBounds() throws TypeError {
+        base.update(new CellLocation(0, 0), new Reference("A4"));
+        base.updateDimensions(3, 3);
+        base.update(new CellLocation(0, 0), new FormulaExpr("Unlinked"));
+        base.updateDimensions(5, 3);
+        assertTrue(base.usedBy(new CellLocation(4, 0)).isEmpty());
+    }
+
+    @Test
+    public void testUsedByIsUnmodifiable() throws TypeError {
+        base.update(new CellLocation(1, 0), new Reference("A3"));
+        Set<CellLocation> usages = base.usedBy(new CellLocation(3, 0));
+        assertThrows(UnsupportedOperationException.class,
+                () -> usages.add(new CellLocation(0, 0)));
+    }
 }
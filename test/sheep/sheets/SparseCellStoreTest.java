@@ -0,0 +1,73 @@
+package sheep.sheets;
+
+import org.junit.Before;
+import org.junit.Test;
+import sheep.expression.basic.Constant;
+import sheep.expression.basic.Nothing;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SparseCellStoreTest {
+    private SparseCellStore store;
+
+    @Before
+    public void setUp() {
+        store = new SparseCellStore();
+    }
+
+    private void write(CellLocation location, long value) {
+        store.setFormula(location, new Constant(value));
+        store.setValue(location, new Constant(value));
+    }
+
+    @Test
+    public void testUnwritten() {
+        assertFalse(store.holds(new CellLocation(0, 0)));
+        assertNull(store.formulaAt(new CellLocation(5000000, 3)));
+        assertNull(store.valueAt(new CellLocation(5000000, 3)));
+        assertTrue(store.usagesOf(new CellLocation(5000000, 3)).isEmpty());
+        assertFalse(store.locations().iterator().hasNext());
+    }
+
+    @Test
+    public void testWriteAcrossTiles() {
+        write(new CellLocation(0, 0), 1);
+        write(new CellLocation(63, 7), 2);
+        write(new CellLocation(64, 8), 3);
+        write(new CellLocation(4000000, 25), 4);
+
+        assertEquals(new Constant(1), store.valueAt(new CellLocation(0, 0)));
+        assertEquals(new Constant(2), store.valueAt(new CellLocation(63, 7)));
+        assertEquals(new Constant(3), store.valueAt(new CellLocation(64, 8)));
+        assertEquals(new Constant(4), store.formulaAt(new CellLocation(4000000, 25)));
+        assertFalse(store.holds(new CellLocation(64, 7)));
+
+        Set<CellLocation> locations = new HashSet<>();
+        store.locations().forEach(locations::add);
+        assertEquals(Set.of(new CellLocation(0, 0), new CellLocation(63, 7),
+                new CellLocation(64, 8), new CellLocation(4000000, 25)), locations);
+    }
+
+    @Test
+    public void testUsages() {
+        CellLocation b2 = new CellLocation(2, 1);
+        store.addUsage(b2, new CellLocation(100, 0));
+        assertEquals(Set.of(new CellLocation(100, 0)), store.usagesOf(b2));
+        assertFalse(store.holds(b2));
+
+        store.removeUsage(b2, new CellLocation(100, 0));
+        assertTrue(store.usagesOf(b2).isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        write(new CellLocation(10, 2), 5);
+        store.setFormula(new CellLocation(3, 3), new Nothing());
+        store.clear();
+        assertFalse(store.holds(new CellLocation(10, 2)));
+        assertFalse(store.holds(new CellLocation(3, 3)));
+    }
+}